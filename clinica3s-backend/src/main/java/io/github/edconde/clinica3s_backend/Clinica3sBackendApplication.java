@@ -2,8 +2,10 @@ package io.github.edconde.clinica3s_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Clinica3sBackendApplication {
 
 	public static void main(String[] args) {
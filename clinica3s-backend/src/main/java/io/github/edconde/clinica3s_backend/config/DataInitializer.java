@@ -358,17 +358,25 @@ public class DataInitializer implements CommandLineRunner {
         // Esto da aproximadamente 4-5 citas por día
         int totalDays = 365 + 90; // 455 días
 
+        // Huecos ya ocupados por dentista: las citas de prueba no pueden solaparse
+        Set<String> bookedSlots = new HashSet<>();
+
         for (int i = 0; i < count; i++) {
             Patient patient = patients.get(random.nextInt(patients.size()));
-            Dentist dentist = dentists.get(random.nextInt(dentists.size()));
-
-            // Seleccionar un día aleatorio en el rango de -365 a +90 días
-            int dayOffset = random.nextInt(totalDays) - 365; // Rango: -365 a +89
-            LocalDateTime appointmentDateTime = now.plusDays(dayOffset)
-                    .withHour(9 + random.nextInt(10))
-                    .withMinute(random.nextBoolean() ? 0 : 30)
-                    .withSecond(0)
-                    .withNano(0);
+            Dentist dentist;
+            int dayOffset;
+            LocalDateTime appointmentDateTime;
+
+            do {
+                dentist = dentists.get(random.nextInt(dentists.size()));
+                // Seleccionar un día aleatorio en el rango de -365 a +90 días
+                dayOffset = random.nextInt(totalDays) - 365; // Rango: -365 a +89
+                appointmentDateTime = now.plusDays(dayOffset)
+                        .withHour(9 + random.nextInt(10))
+                        .withMinute(random.nextBoolean() ? 0 : 30)
+                        .withSecond(0)
+                        .withNano(0);
+            } while (!bookedSlots.add(dentist.getId() + "|" + appointmentDateTime));
 
             // Contar por categoría
             if (dayOffset < 0) {
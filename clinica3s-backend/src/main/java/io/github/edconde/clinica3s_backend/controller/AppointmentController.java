@@ -2,9 +2,16 @@ package io.github.edconde.clinica3s_backend.controller;
 
 import io.github.edconde.clinica3s_backend.dto.AppointmentRequest;
 import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.dto.BulkAppointmentUpdateRequest;
+import io.github.edconde.clinica3s_backend.dto.BulkOperationResponse;
+import io.github.edconde.clinica3s_backend.dto.SlicePage;
 import io.github.edconde.clinica3s_backend.entity.AppUser;
 import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import io.github.edconde.clinica3s_backend.service.AppointmentArchiveService;
+import io.github.edconde.clinica3s_backend.service.AppointmentEventStream;
+import io.github.edconde.clinica3s_backend.service.AppointmentListView;
 import io.github.edconde.clinica3s_backend.service.AppointmentService;
+import io.github.edconde.clinica3s_backend.service.DentistAgendaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,16 +19,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/appointments")
@@ -30,16 +44,23 @@ import java.time.LocalDateTime;
 public class AppointmentController {
 
     private final AppointmentService appointmentService;
+    private final AppointmentEventStream appointmentEventStream;
+    private final AppointmentListView appointmentListView;
+    private final DentistAgendaService dentistAgendaService;
+    private final AppointmentArchiveService appointmentArchiveService;
 
     @Operation(summary = "Listar citas (paginado con filtros)",
                description = "Obtiene las citas con filtros opcionales. ADMIN/RECEPTIONIST ven todas, DENTIST solo las suyas. " +
-                       "Se pueden combinar múltiples filtros: patientId, dentistId, status, startDate, endDate.")
+                       "Se pueden combinar múltiples filtros: patientId, dentistId, status, startDate, endDate. " +
+                       "Con pagination=cursor se pagina por (dateTime, id) y se devuelven nextCursor/prevCursor en lugar del total. " +
+                       "Con pagination=slice se pagina por número de página sin calcular el total (solo hasNext); estimateTotal=true " +
+                       "añade un total aproximado.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de citas obtenida exitosamente"),
             @ApiResponse(responseCode = "401", description = "No autenticado")
     })
     @GetMapping
-    public ResponseEntity<Page<AppointmentResponse>> getAppointments(
+    public ResponseEntity<?> getAppointments(
             @Parameter(hidden = true) @AuthenticationPrincipal AppUser user,
             @Parameter(description = "ID del paciente") @RequestParam(required = false) Long patientId,
             @Parameter(description = "ID del dentista") @RequestParam(required = false) Long dentistId,
@@ -48,6 +69,12 @@ public class AppointmentController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @Parameter(description = "Fecha de fin (formato: yyyy-MM-dd'T'HH:mm:ss)")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "Modo de paginación: offset (por defecto), slice (sin total) o cursor")
+            @RequestParam(defaultValue = "offset") String pagination,
+            @Parameter(description = "Cursor devuelto en nextCursor/prevCursor (solo con pagination=cursor)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Incluir un total aproximado (solo con pagination=slice)")
+            @RequestParam(defaultValue = "false") boolean estimateTotal,
             @Parameter(description = "Paginación") @PageableDefault(size = 10, sort = "dateTime") Pageable pageable) {
 
         // Si el usuario es DENTIST, forzar el filtro por su dentistId
@@ -57,18 +84,57 @@ public class AppointmentController {
             effectiveDentistId = appointmentService.getDentistIdForUser(user);
         }
 
+        if ("cursor".equalsIgnoreCase(pagination)) {
+            return ResponseEntity.ok(appointmentService.findWithFiltersByCursor(
+                    patientId, effectiveDentistId, status, startDate, endDate, cursor, pageable.getPageSize()));
+        }
+
+        if ("slice".equalsIgnoreCase(pagination)) {
+            Long estimate = estimateTotal
+                    ? appointmentService.estimateCount(patientId, effectiveDentistId, status, startDate, endDate)
+                    : null;
+            return ResponseEntity.ok(SlicePage.of(appointmentService.findSliceWithFilters(
+                    patientId, effectiveDentistId, status, startDate, endDate, pageable), estimate));
+        }
+
         return ResponseEntity.ok(appointmentService.findWithFilters(patientId, effectiveDentistId, status, startDate, endDate, pageable));
     }
 
-    @Operation(summary = "Obtener cita por ID", description = "Obtiene el detalle de una cita específica")
+    @Operation(summary = "Stream de cambios de citas (SSE)",
+               description = "Envía un evento 'appointment' por cada cita creada, pagada o con cambio de estado, tras confirmarse. " +
+                       "DENTIST solo recibe sus citas. Con Last-Event-ID se reenvían los eventos perdidos; si ya no están disponibles " +
+                       "se envía un evento 'reset' y el cliente debe recargar.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream abierto"),
+            @ApiResponse(responseCode = "401", description = "No autenticado")
+    })
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @Parameter(hidden = true) @AuthenticationPrincipal AppUser user,
+            @Parameter(description = "Último id de evento recibido") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long dentistId = user.getRole() == io.github.edconde.clinica3s_backend.entity.Role.DENTIST
+                ? appointmentService.getDentistIdForUser(user)
+                : null;
+        return appointmentEventStream.subscribe(dentistId, lastEventId);
+    }
+
+    @Operation(summary = "Obtener cita por ID",
+               description = "Obtiene el detalle de una cita específica. El ETag combina la versión de la cita y la de su paciente; " +
+                       "con If-None-Match se responde 304 consultando solo las versiones, sin cargar la cita.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Cita encontrada"),
+            @ApiResponse(responseCode = "304", description = "La cita no ha cambiado desde el ETag indicado"),
             @ApiResponse(responseCode = "404", description = "Cita no encontrada")
     })
     @GetMapping("/{id}")
     public ResponseEntity<AppointmentResponse> getAppointment(
-            @Parameter(description = "ID de la cita") @PathVariable Long id) {
-        return ResponseEntity.ok(appointmentService.findById(id));
+            @Parameter(description = "ID de la cita") @PathVariable Long id,
+            @Parameter(hidden = true) WebRequest webRequest) {
+        var stamp = appointmentService.findVersionStamp(id);
+        if (webRequest.checkNotModified(ETags.of(stamp.getVersion(), stamp.getPatientVersion()))) {
+            return null;
+        }
+        return withETag(appointmentService.findById(id));
     }
 
     @Operation(summary = "Crear nueva cita", description = "Crea una nueva cita con los servicios especificados. Solo ADMIN y RECEPTIONIST.")
@@ -84,31 +150,140 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.createAppointment(request));
     }
 
-    @Operation(summary = "Registrar pago de cita", description = "Marca todos los servicios de la cita como pagados y actualiza el estado a COMPLETED.")
+    @Operation(summary = "Crear citas en bloque",
+               description = "Crea varias citas en una sola transacción (máximo 1000). Las entradas inválidas no se crean y " +
+                       "se informan en su resultado; el resto se inserta. Solo ADMIN y RECEPTIONIST.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultado por cita, en el orden de la petición"),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o demasiado grande"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @PostMapping("/bulk")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    public ResponseEntity<BulkOperationResponse> createAppointments(
+            @RequestBody List<AppointmentRequest> requests) {
+        return ResponseEntity.ok(appointmentService.createAppointments(requests));
+    }
+
+    @Operation(summary = "Registrar pago de citas en bloque",
+               description = "Marca como pagados los servicios pendientes y pasa a COMPLETED las citas indicadas por ids o por filtro " +
+                       "(máximo 1000), con actualizaciones en bloque en una sola transacción. Solo ADMIN y RECEPTIONIST.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultado por cita"),
+            @ApiResponse(responseCode = "400", description = "Sin ids ni filtro, o demasiadas citas"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @PostMapping("/bulk/pay")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    public ResponseEntity<BulkOperationResponse> payAppointments(
+            @RequestBody BulkAppointmentUpdateRequest request) {
+        return ResponseEntity.ok(appointmentService.payAppointments(request));
+    }
+
+    @Operation(summary = "Actualizar estado de citas en bloque",
+               description = "Cambia al estado indicado (PENDING, COMPLETED, NO_SHOW) las citas indicadas por ids o por filtro " +
+                       "(máximo 1000) con una actualización en bloque. Solo ADMIN y RECEPTIONIST.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultado por cita"),
+            @ApiResponse(responseCode = "400", description = "Sin estado, sin ids ni filtro, o demasiadas citas"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @PostMapping("/bulk/status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
+    public ResponseEntity<BulkOperationResponse> updateStatuses(
+            @RequestBody BulkAppointmentUpdateRequest request) {
+        return ResponseEntity.ok(appointmentService.updateStatuses(request));
+    }
+
+    @Operation(summary = "Regenerar listado de citas",
+               description = "Reconstruye la tabla appointment_list_view a partir de las citas, pacientes y dentistas. Solo ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Listado regenerado, devuelve el número de filas"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @PostMapping("/list-view/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildListView() {
+        int rows = appointmentListView.rebuild();
+        // Las agendas en caché se leyeron del listado anterior
+        dentistAgendaService.invalidateAll();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    @Operation(summary = "Archivar citas históricas",
+               description = "Mueve a las tablas de archivo las citas COMPLETED o NO_SHOW pagadas por completo y anteriores al " +
+                       "horizonte configurado. Se ejecuta también cada noche. Solo ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archivado completado, devuelve el número de citas movidas"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @PostMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> archiveAppointments() {
+        return ResponseEntity.ok(Map.of("archived", appointmentArchiveService.archive()));
+    }
+
+    @Operation(summary = "Registrar pago de cita",
+               description = "Marca todos los servicios de la cita como pagados y actualiza el estado a COMPLETED. " +
+                       "Con If-Match solo se aplica si la cita sigue en esa versión; sin él se reintenta ante escrituras concurrentes.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Pago registrado exitosamente"),
             @ApiResponse(responseCode = "404", description = "Cita no encontrada"),
-            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación"),
+            @ApiResponse(responseCode = "409", description = "La cita se modificó a la vez desde otra sesión"),
+            @ApiResponse(responseCode = "412", description = "La versión de If-Match no es la actual")
     })
     @PutMapping("/{id}/pay")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
     public ResponseEntity<AppointmentResponse> payAppointment(
-            @Parameter(description = "ID de la cita") @PathVariable Long id) {
-        return ResponseEntity.ok(appointmentService.payAppointment(id));
+            @Parameter(description = "ID de la cita") @PathVariable Long id,
+            @Parameter(description = "ETag de la versión esperada") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(appointmentService.payAppointment(id, parseVersion(ifMatch)));
     }
 
-    @Operation(summary = "Actualizar estado de cita", description = "Cambia el estado de una cita (PENDING, COMPLETED, NO_SHOW)")
+    @Operation(summary = "Actualizar estado de cita",
+               description = "Cambia el estado de una cita (PENDING, COMPLETED, NO_SHOW). Admite If-Match igual que el registro de pago.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Estado actualizado exitosamente"),
             @ApiResponse(responseCode = "404", description = "Cita no encontrada"),
-            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación"),
+            @ApiResponse(responseCode = "409", description = "La cita se modificó a la vez desde otra sesión"),
+            @ApiResponse(responseCode = "412", description = "La versión de If-Match no es la actual")
     })
     @PutMapping("/{id}/status")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST', 'DENTIST')")
     public ResponseEntity<AppointmentResponse> updateStatus(
             @Parameter(description = "ID de la cita") @PathVariable Long id,
-            @Parameter(description = "Nuevo estado") @RequestParam AppointmentStatus status) {
-        return ResponseEntity.ok(appointmentService.updateStatus(id, status));
+            @Parameter(description = "Nuevo estado") @RequestParam AppointmentStatus status,
+            @Parameter(description = "ETag de la versión esperada") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(appointmentService.updateStatus(id, status, parseVersion(ifMatch)));
+    }
+
+    private static ResponseEntity<AppointmentResponse> withETag(AppointmentResponse response) {
+        return ResponseEntity.ok()
+                .eTag(ETags.of(response.getVersion(), response.getPatient().getVersion()))
+                .body(response);
+    }
+
+    // If-Match: "3.1", W/"3.1" o * (cualquier versión); la primera parte es la versión de la cita
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        int separator = value.indexOf('.');
+        if (separator >= 0) {
+            value = value.substring(0, separator);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match no corresponde a una versión de cita");
+        }
     }
 }
 
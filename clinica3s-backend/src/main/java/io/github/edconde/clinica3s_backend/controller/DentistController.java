@@ -1,17 +1,30 @@
 package io.github.edconde.clinica3s_backend.controller;
 
+import io.github.edconde.clinica3s_backend.dto.AvailabilityResponse;
+import io.github.edconde.clinica3s_backend.dto.DentistAgendaResponse;
+import io.github.edconde.clinica3s_backend.dto.SlicePage;
+import io.github.edconde.clinica3s_backend.entity.AppUser;
 import io.github.edconde.clinica3s_backend.entity.Dentist;
+import io.github.edconde.clinica3s_backend.entity.Role;
+import io.github.edconde.clinica3s_backend.service.AvailabilityService;
+import io.github.edconde.clinica3s_backend.service.DentistAgendaService;
 import io.github.edconde.clinica3s_backend.service.DentistService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/dentists")
@@ -20,17 +33,65 @@ import org.springframework.web.bind.annotation.*;
 public class DentistController {
 
     private final DentistService dentistService;
+    private final AvailabilityService availabilityService;
+    private final DentistAgendaService dentistAgendaService;
 
     @Operation(summary = "Listar dentistas (paginado con filtros)",
-               description = "Obtiene todos los dentistas de la clínica con paginación. Filtros opcionales: nombre, especialidad.")
+               description = "Obtiene todos los dentistas de la clínica con paginación. Filtros opcionales: nombre, especialidad. " +
+                       "Con pagination=slice no se calcula el total (solo hasNext) y estimateTotal=true añade un total aproximado.")
     @GetMapping
-    public ResponseEntity<Page<Dentist>> getAllDentists(
+    public ResponseEntity<?> getAllDentists(
             @Parameter(description = "Filtrar por nombre (búsqueda parcial)") @RequestParam(required = false) String name,
             @Parameter(description = "Filtrar por ID de especialidad") @RequestParam(required = false) Long specialtyId,
+            @Parameter(description = "Modo de paginación: offset (por defecto) o slice")
+            @RequestParam(defaultValue = "offset") String pagination,
+            @Parameter(description = "Incluir un total aproximado (solo con pagination=slice)")
+            @RequestParam(defaultValue = "false") boolean estimateTotal,
             @Parameter(description = "Paginación") @PageableDefault(size = 10, sort = "id") Pageable pageable) {
+        if ("slice".equalsIgnoreCase(pagination)) {
+            Long estimate = estimateTotal ? dentistService.estimateCount(name, specialtyId) : null;
+            return ResponseEntity.ok(SlicePage.of(dentistService.findSliceWithFilters(name, specialtyId, pageable), estimate));
+        }
         return ResponseEntity.ok(dentistService.findWithFilters(name, specialtyId, pageable));
     }
 
+    @Operation(summary = "Buscar huecos libres por especialidad",
+               description = "Devuelve las franjas libres (huecos de 30 minutos de 9:00 a 19:00) de los dentistas de una especialidad " +
+                       "dentro de una ventana de fechas de hasta 31 días. Opcionalmente, solo franjas de al menos durationMinutes.")
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityResponse> getAvailability(
+            @Parameter(description = "ID de la especialidad") @RequestParam Long specialtyId,
+            @Parameter(description = "Inicio de la ventana") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Fin de la ventana") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Duración mínima de la franja en minutos (por defecto 30)") @RequestParam(required = false) Integer durationMinutes) {
+        return ResponseEntity.ok(availabilityService.findAvailability(specialtyId, from, to, durationMinutes));
+    }
+
+    @Operation(summary = "Agenda del dentista autenticado",
+               description = "Citas del día indicado (por defecto hoy) del dentista asociado al usuario, ordenadas por hora. Solo DENTIST.")
+    @GetMapping("/me/agenda")
+    @PreAuthorize("hasRole('DENTIST')")
+    public ResponseEntity<DentistAgendaResponse> getMyAgenda(
+            @Parameter(hidden = true) @AuthenticationPrincipal AppUser user,
+            @Parameter(description = "Día (yyyy-MM-dd); por defecto hoy") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        Long dentistId = dentistService.findByUserId(user.getId()).getId();
+        return ResponseEntity.ok(dentistAgendaService.getAgenda(dentistId, date));
+    }
+
+    @Operation(summary = "Agenda de un dentista",
+               description = "Citas del día indicado (por defecto hoy) del dentista, ordenadas por hora. " +
+                       "ADMIN y RECEPTIONIST ven cualquier agenda; DENTIST solo la suya.")
+    @GetMapping("/{id}/agenda")
+    public ResponseEntity<DentistAgendaResponse> getAgenda(
+            @Parameter(hidden = true) @AuthenticationPrincipal AppUser user,
+            @Parameter(description = "ID del dentista") @PathVariable Long id,
+            @Parameter(description = "Día (yyyy-MM-dd); por defecto hoy") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (user.getRole() == Role.DENTIST && !id.equals(dentistService.findByUserId(user.getId()).getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Solo puede consultar su propia agenda");
+        }
+        return ResponseEntity.ok(dentistAgendaService.getAgenda(id, date));
+    }
+
     @Operation(summary = "Obtener dentista", description = "Obtiene un dentista por su ID")
     @GetMapping("/{id}")
     public ResponseEntity<Dentist> getDentist(@Parameter(description = "ID del dentista") @PathVariable Long id) {
@@ -0,0 +1,21 @@
+package io.github.edconde.clinica3s_backend.controller;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * ETags fuertes formados por las versiones de las entidades que componen la representación,
+ * por ejemplo {@code "3.1"} para una cita en su versión 3 cuyo paciente está en la versión 1.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Object... versions) {
+        return Arrays.stream(versions)
+                .map(version -> Objects.toString(version, "0"))
+                .collect(Collectors.joining(".", "\"", "\""));
+    }
+}
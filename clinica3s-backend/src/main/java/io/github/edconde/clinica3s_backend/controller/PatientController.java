@@ -1,17 +1,32 @@
 package io.github.edconde.clinica3s_backend.controller;
 
+import io.github.edconde.clinica3s_backend.dto.PatientDuplicateReport;
+import io.github.edconde.clinica3s_backend.dto.PatientSuggestion;
+import io.github.edconde.clinica3s_backend.dto.PatientTimelineResponse;
+import io.github.edconde.clinica3s_backend.dto.SlicePage;
 import io.github.edconde.clinica3s_backend.entity.Patient;
+import io.github.edconde.clinica3s_backend.service.PatientDuplicateDetector;
+import io.github.edconde.clinica3s_backend.service.PatientImportService;
 import io.github.edconde.clinica3s_backend.service.PatientService;
+import io.github.edconde.clinica3s_backend.service.PatientTimelineService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/patients")
@@ -20,22 +35,75 @@ import org.springframework.web.bind.annotation.*;
 public class PatientController {
 
     private final PatientService patientService;
+    private final PatientImportService patientImportService;
+    private final PatientTimelineService patientTimelineService;
+    private final PatientDuplicateDetector patientDuplicateDetector;
 
     @Operation(summary = "Listar pacientes (paginado con filtros)",
-               description = "Obtiene todos los pacientes registrados con paginación. Filtros opcionales: nombre, teléfono, email.")
+               description = "Obtiene todos los pacientes registrados con paginación. Filtros opcionales: nombre, teléfono, email. " +
+                       "Con pagination=slice no se calcula el total (solo hasNext) y estimateTotal=true añade un total aproximado.")
     @GetMapping
-    public ResponseEntity<Page<Patient>> getAllPatients(
+    public ResponseEntity<?> getAllPatients(
             @Parameter(description = "Filtrar por nombre (búsqueda parcial)") @RequestParam(required = false) String name,
             @Parameter(description = "Filtrar por teléfono (búsqueda parcial)") @RequestParam(required = false) String phone,
             @Parameter(description = "Filtrar por email (búsqueda parcial)") @RequestParam(required = false) String email,
+            @Parameter(description = "Modo de paginación: offset (por defecto) o slice")
+            @RequestParam(defaultValue = "offset") String pagination,
+            @Parameter(description = "Incluir un total aproximado (solo con pagination=slice)")
+            @RequestParam(defaultValue = "false") boolean estimateTotal,
             @Parameter(description = "Paginación") @PageableDefault(size = 10, sort = "id") Pageable pageable) {
+        if ("slice".equalsIgnoreCase(pagination)) {
+            Long estimate = estimateTotal ? patientService.estimateCount(name, phone, email) : null;
+            return ResponseEntity.ok(SlicePage.of(patientService.findSliceWithFilters(name, phone, email, pageable), estimate));
+        }
         return ResponseEntity.ok(patientService.findWithFilters(name, phone, email, pageable));
     }
 
-    @Operation(summary = "Obtener paciente", description = "Obtiene un paciente por su ID")
+    @Operation(summary = "Sugerir pacientes",
+               description = "Autocompletado: hasta limit pacientes (id, nombre y teléfono) con una palabra del nombre o el teléfono " +
+                       "que empieza por q, sin distinguir acentos. Se resuelve en memoria, sin consultar la base de datos.")
+    @GetMapping("/suggest")
+    public ResponseEntity<List<PatientSuggestion>> suggestPatients(
+            @Parameter(description = "Texto buscado (inicio de una palabra del nombre o del teléfono)") @RequestParam String q,
+            @Parameter(description = "Número máximo de sugerencias (máximo 50)") @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(patientService.suggest(q, limit));
+    }
+
+    @Operation(summary = "Pacientes duplicados",
+               description = "Parejas de pacientes probablemente duplicados según la última detección (se ejecuta cada noche), " +
+                       "de más a menos probable, para revisarlas y fusionarlas. Si aún no se ha ejecutado, la ejecuta. Solo ADMIN.")
+    @GetMapping("/duplicates")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PatientDuplicateReport> getDuplicates() {
+        return ResponseEntity.ok(patientDuplicateDetector.getReport());
+    }
+
+    @Operation(summary = "Detectar pacientes duplicados",
+               description = "Ejecuta ahora la detección de duplicados y devuelve el resultado. Responde 409 si ya hay una en curso. Solo ADMIN.")
+    @PostMapping("/duplicates/scan")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PatientDuplicateReport> scanDuplicates() {
+        return ResponseEntity.ok(patientDuplicateDetector.scan());
+    }
+
+    @Operation(summary = "Obtener paciente",
+               description = "Obtiene un paciente por su ID. Devuelve su versión como ETag y responde 304 a If-None-Match si no ha cambiado.")
     @GetMapping("/{id}")
-    public ResponseEntity<Patient> getPatient(@Parameter(description = "ID del paciente") @PathVariable Long id) {
-        return ResponseEntity.ok(patientService.findById(id));
+    public ResponseEntity<Patient> getPatient(@Parameter(description = "ID del paciente") @PathVariable Long id,
+                                              @Parameter(hidden = true) WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETags.of(patientService.findVersion(id)))) {
+            return null;
+        }
+        Patient patient = patientService.findById(id);
+        return ResponseEntity.ok().eTag(ETags.of(patient.getVersion())).body(patient);
+    }
+
+    @Operation(summary = "Historial del paciente",
+               description = "Todas las citas del paciente, también las archivadas, de la más antigua a la más reciente, con sus " +
+                       "servicios, importes, estado de pago y el saldo pendiente acumulado tras cada una.")
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<PatientTimelineResponse> getPatientTimeline(@Parameter(description = "ID del paciente") @PathVariable Long id) {
+        return ResponseEntity.ok(patientTimelineService.getTimeline(id));
     }
 
     @Operation(summary = "Crear paciente", description = "Registra un nuevo paciente. Solo ADMIN y RECEPTIONIST.")
@@ -45,6 +113,28 @@ public class PatientController {
         return ResponseEntity.ok(patientService.create(patient));
     }
 
+    @Operation(summary = "Importar pacientes",
+               description = "Importa pacientes desde el cuerpo de la petición en CSV (cabecera con name, phone y opcionalmente email, " +
+                       "birth_date, gender) o NDJSON, admitiendo Content-Encoding: gzip. Se procesa en streaming y se descartan los " +
+                       "duplicados por teléfono o email. La respuesta es NDJSON: una línea por fila rechazada o duplicada, el progreso " +
+                       "tras cada bloque guardado y el resumen final.")
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> importPatients(
+            @Parameter(description = "Formato de entrada (CSV, NDJSON)") @RequestParam(defaultValue = "CSV") PatientImportService.Format format,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            @Parameter(hidden = true) HttpServletRequest request) {
+        StreamingResponseBody body = output -> {
+            InputStream input = "gzip".equalsIgnoreCase(contentEncoding)
+                    ? new GZIPInputStream(request.getInputStream(), 64 * 1024)
+                    : request.getInputStream();
+            patientImportService.importPatients(input, format, output);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @Operation(summary = "Actualizar paciente", description = "Actualiza los datos de un paciente existente. Solo ADMIN y RECEPTIONIST.")
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
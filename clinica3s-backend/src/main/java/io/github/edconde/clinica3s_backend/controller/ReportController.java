@@ -1,6 +1,9 @@
 package io.github.edconde.clinica3s_backend.controller;
 
 import io.github.edconde.clinica3s_backend.dto.DashboardStatsDTO;
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import io.github.edconde.clinica3s_backend.service.AppointmentExportService;
+import io.github.edconde.clinica3s_backend.service.AppointmentRollupService;
 import io.github.edconde.clinica3s_backend.service.ReportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -8,12 +11,21 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -23,6 +35,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class ReportController {
 
     private final ReportService reportService;
+    private final AppointmentRollupService appointmentRollupService;
+    private final AppointmentExportService appointmentExportService;
 
     @Operation(summary = "Obtener estadísticas del dashboard",
                description = "Devuelve estadísticas generales: total pacientes, citas, ingresos, pagos pendientes, stats por mes y por dentista. Se puede filtrar opcionalmente por año.")
@@ -37,5 +51,54 @@ public class ReportController {
             @RequestParam(required = false) Integer year) {
         return ResponseEntity.ok(reportService.getDashboardStats(year));
     }
-}
 
+    @Operation(summary = "Regenerar agregados diarios",
+               description = "Reconstruye la tabla appointment_daily_rollup a partir de las citas y sus detalles. Solo ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Agregados regenerados, devuelve el número de filas"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildRollup() {
+        return ResponseEntity.ok(Map.of("rows", appointmentRollupService.rebuild()));
+    }
+
+    @Operation(summary = "Exportar citas con sus líneas de detalle",
+               description = "Descarga una fila por línea de detalle (las citas sin detalles aparecen una vez) en CSV o NDJSON. " +
+                       "Acepta los mismos filtros que el listado de citas y se genera en streaming, por lo que admite exportar años completos.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fichero de exportación"),
+            @ApiResponse(responseCode = "401", description = "No autenticado"),
+            @ApiResponse(responseCode = "403", description = "Sin permisos para esta operación")
+    })
+    @GetMapping("/appointments/export")
+    public ResponseEntity<StreamingResponseBody> exportAppointments(
+            @Parameter(description = "ID del paciente") @RequestParam(required = false) Long patientId,
+            @Parameter(description = "ID del dentista") @RequestParam(required = false) Long dentistId,
+            @Parameter(description = "Estado de la cita (PENDING, COMPLETED, NO_SHOW)") @RequestParam(required = false) AppointmentStatus status,
+            @Parameter(description = "Fecha de inicio (formato: yyyy-MM-dd'T'HH:mm:ss)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "Fecha de fin (formato: yyyy-MM-dd'T'HH:mm:ss)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "Formato de salida (CSV, NDJSON)") @RequestParam(defaultValue = "CSV") AppointmentExportService.Format format,
+            @Parameter(description = "Comprimir la salida con gzip") @RequestParam(defaultValue = "false") boolean gzip) {
+
+        String extension = format == AppointmentExportService.Format.CSV ? "csv" : "ndjson";
+        MediaType contentType = format == AppointmentExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.parseMediaType("application/x-ndjson");
+        if (gzip) {
+            extension += ".gz";
+            contentType = MediaType.parseMediaType("application/gzip");
+        }
+
+        StreamingResponseBody body = output -> appointmentExportService.export(
+                patientId, dentistId, status, startDate, endDate, format, gzip, output);
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"appointments." + extension + "\"")
+                .body(body);
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.edconde.clinica3s_backend.controller;
 
+import io.github.edconde.clinica3s_backend.dto.SlicePage;
 import io.github.edconde.clinica3s_backend.entity.Service;
 import io.github.edconde.clinica3s_backend.service.ServiceService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +13,7 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -23,24 +25,53 @@ public class ServiceController {
 
     private final ServiceService serviceService;
 
-    @Operation(summary = "Listar servicios (paginado)", description = "Obtiene todos los servicios odontológicos disponibles con paginación")
+    @Operation(summary = "Listar servicios (paginado)",
+               description = "Obtiene todos los servicios odontológicos disponibles con paginación. El ETag es la versión del catálogo " +
+                       "y con If-None-Match se responde 304 sin construir la página. Con pagination=slice se devuelve el " +
+                       "mismo formato que el resto de listados sin total; como el catálogo está en memoria, estimateTotal=true da el total exacto.")
     @GetMapping
-    public ResponseEntity<Page<Service>> getAllServices(
-            @Parameter(description = "Número de página (0-indexed)") @PageableDefault(size = 10, sort = "id") Pageable pageable) {
-        return ResponseEntity.ok(serviceService.findAll(pageable));
+    public ResponseEntity<?> getAllServices(
+            @Parameter(description = "Modo de paginación: offset (por defecto) o slice")
+            @RequestParam(defaultValue = "offset") String pagination,
+            @Parameter(description = "Incluir el total (solo con pagination=slice)")
+            @RequestParam(defaultValue = "false") boolean estimateTotal,
+            @Parameter(description = "Número de página (0-indexed)") @PageableDefault(size = 10, sort = "id") Pageable pageable,
+            @Parameter(hidden = true) WebRequest webRequest) {
+        String eTag = ETags.of(serviceService.catalogVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        Page<Service> page = serviceService.findAll(pageable);
+        if ("slice".equalsIgnoreCase(pagination)) {
+            return ResponseEntity.ok().eTag(eTag).body(SlicePage.of(page, estimateTotal ? page.getTotalElements() : null));
+        }
+        return ResponseEntity.ok().eTag(eTag).body(page);
     }
 
-    @Operation(summary = "Obtener servicio", description = "Obtiene un servicio por su ID")
+    @Operation(summary = "Obtener servicio",
+               description = "Obtiene un servicio por su ID. El ETag combina la versión del servicio y la de su especialidad.")
     @GetMapping("/{id}")
-    public ResponseEntity<Service> getService(@Parameter(description = "ID del servicio") @PathVariable Long id) {
-        return ResponseEntity.ok(serviceService.findById(id));
+    public ResponseEntity<Service> getService(@Parameter(description = "ID del servicio") @PathVariable Long id,
+                                              @Parameter(hidden = true) WebRequest webRequest) {
+        Service service = serviceService.findById(id);
+        String eTag = ETags.of(service.getVersion(), service.getSpecialty() != null ? service.getSpecialty().getVersion() : null);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service);
     }
 
-    @Operation(summary = "Listar servicios por especialidad", description = "Obtiene todos los servicios de una especialidad específica")
+    @Operation(summary = "Listar servicios por especialidad",
+               description = "Obtiene todos los servicios de una especialidad específica. El ETag es la versión del catálogo.")
     @GetMapping("/specialty/{specialtyId}")
     public ResponseEntity<List<Service>> getServicesBySpecialty(
-            @Parameter(description = "ID de la especialidad") @PathVariable Long specialtyId) {
-        return ResponseEntity.ok(serviceService.findBySpecialtyId(specialtyId));
+            @Parameter(description = "ID de la especialidad") @PathVariable Long specialtyId,
+            @Parameter(hidden = true) WebRequest webRequest) {
+        String eTag = ETags.of(serviceService.catalogVersion());
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(serviceService.findBySpecialtyId(specialtyId));
     }
 
     @Operation(summary = "Crear servicio", description = "Crea un nuevo servicio. Solo ADMIN.")
@@ -9,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -26,10 +27,16 @@ public class SpecialtyController {
         return ResponseEntity.ok(specialtyService.findAll());
     }
 
-    @Operation(summary = "Obtener especialidad", description = "Obtiene una especialidad por su ID")
+    @Operation(summary = "Obtener especialidad",
+               description = "Obtiene una especialidad por su ID. Devuelve su versión como ETag y responde 304 a If-None-Match si no ha cambiado.")
     @GetMapping("/{id}")
-    public ResponseEntity<Specialty> getSpecialty(@Parameter(description = "ID de la especialidad") @PathVariable Long id) {
-        return ResponseEntity.ok(specialtyService.findById(id));
+    public ResponseEntity<Specialty> getSpecialty(@Parameter(description = "ID de la especialidad") @PathVariable Long id,
+                                                  @Parameter(hidden = true) WebRequest webRequest) {
+        if (webRequest.checkNotModified(ETags.of(specialtyService.findVersion(id)))) {
+            return null;
+        }
+        Specialty specialty = specialtyService.findById(id);
+        return ResponseEntity.ok().eTag(ETags.of(specialty.getVersion())).body(specialty);
     }
 
     @Operation(summary = "Crear especialidad", description = "Crea una nueva especialidad. Solo ADMIN.")
@@ -1,6 +1,7 @@
 package io.github.edconde.clinica3s_backend.dto;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,6 +28,10 @@ public class AppointmentRequest {
     @NotNull(message = "Los servicios son requeridos")
     private List<ServiceDetailRequest> services;
 
+    // Opcional: si no se indica, se usa la suma de las duraciones de los servicios
+    @Positive(message = "La duración debe ser positiva")
+    private Integer durationMinutes;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -16,8 +16,15 @@ import java.util.List;
 public class AppointmentResponse {
     private Long id;
     private LocalDateTime dateTime;
+    private Integer durationMinutes;
     private AppointmentStatus status;
     private Double totalAmount;
+    // Versión de la cita, también enviada como ETag
+    private Long version;
+    // Todos los detalles pagados y resumen de servicios ("Limpieza x2, Empaste"); en los listados
+    // sustituyen a details, que solo se envía en la cita individual
+    private Boolean paid;
+    private String servicesSummary;
     private PatientInfo patient;
     private DentistInfo dentist;
     private List<DetailInfo> details;
@@ -28,6 +35,8 @@ public class AppointmentResponse {
     @AllArgsConstructor
     public static class PatientInfo {
         private Long id;
+        // Forma parte del ETag de la cita: cambia si se editan los datos del paciente
+        private Long version;
         private String name;
         private String phone;
         private String email;
@@ -0,0 +1,44 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Huecos libres de los dentistas de una especialidad dentro de una ventana de fechas.
+ * Cada franja agrupa huecos consecutivos y dura al menos la duración solicitada.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResponse {
+    private Long specialtyId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private int durationMinutes;
+    private List<DentistAvailability> dentists;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DentistAvailability {
+        private Long dentistId;
+        private String dentistName;
+        private List<FreeSlot> slots;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FreeSlot {
+        private LocalDateTime start;
+        private LocalDateTime end;
+    }
+}
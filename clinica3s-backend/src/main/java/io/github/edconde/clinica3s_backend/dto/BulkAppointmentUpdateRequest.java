@@ -0,0 +1,40 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Selección de citas para una operación masiva: una lista de ids o, si no se indica, un filtro con los
+ * mismos criterios que el listado de citas.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAppointmentUpdateRequest {
+
+    private List<Long> ids;
+
+    private Filter filter;
+
+    // Nuevo estado (solo en el cambio de estado masivo)
+    private AppointmentStatus status;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Filter {
+        private Long patientId;
+        private Long dentistId;
+        private AppointmentStatus status;
+        private LocalDateTime startDate;
+        private LocalDateTime endDate;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página obtenida por cursor. No incluye el total de elementos: los cursores son opacos y
+ * se envían tal cual en el parámetro {@code cursor} para obtener la página siguiente o la anterior.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private String prevCursor;
+    private boolean hasNext;
+    private boolean hasPrevious;
+}
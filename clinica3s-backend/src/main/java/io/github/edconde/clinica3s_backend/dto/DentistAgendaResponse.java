@@ -0,0 +1,42 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Agenda de un dentista para un día: sus citas ordenadas por hora de inicio.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DentistAgendaResponse {
+    private Long dentistId;
+    private String dentistName;
+    private LocalDate date;
+    private List<AgendaItem> appointments;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgendaItem {
+        private Long appointmentId;
+        private LocalDateTime start;
+        private LocalDateTime end;
+        private AppointmentStatus status;
+        private Long patientId;
+        private String patientName;
+        private String patientPhone;
+        private String servicesSummary;
+        private Double totalAmount;
+        private Boolean paid;
+    }
+}
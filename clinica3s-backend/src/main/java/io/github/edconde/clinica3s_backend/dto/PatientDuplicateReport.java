@@ -0,0 +1,63 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resultado de la última detección de pacientes duplicados: parejas candidatas a fusionarse, de más a
+ * menos probable.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientDuplicateReport {
+    private LocalDateTime generatedAt;
+    private Long durationMillis;
+    private Integer patientsScanned;
+    // Parejas comparadas dentro de los bloques
+    private Long comparisons;
+    // Bloques descartados por superar el tamaño máximo (por ejemplo, un teléfono compartido por muchos pacientes)
+    private Integer skippedBlocks;
+    // Parejas encontradas, aunque solo se devuelvan las primeras max-candidates
+    private Integer totalCandidates;
+    private List<Candidate> candidates;
+
+    public enum Match {
+        PHONE,
+        EMAIL,
+        BIRTH_DATE,
+        // Teléfonos que difieren en un dígito o en dos dígitos contiguos intercambiados
+        SIMILAR_PHONE
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Candidate {
+        private PatientInfo first;
+        private PatientInfo second;
+        // Similitud Jaro-Winkler de los nombres normalizados (0 a 1)
+        private Double nameSimilarity;
+        private List<Match> matchedOn;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PatientInfo {
+        private Long id;
+        private String name;
+        private String phone;
+        private String email;
+        private LocalDate birthDate;
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Línea de la respuesta NDJSON de la importación de pacientes. Las filas rechazadas y duplicadas se
+ * envían según se detectan (con su número de fila y el motivo); tras cada bloque guardado se envía el
+ * progreso acumulado y al final el resumen (COMPLETED).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PatientImportProgress {
+    private Type type;
+    // Fila de datos (1 = primera fila tras la cabecera en CSV, primera línea en NDJSON)
+    private Long row;
+    private String reason;
+    private Long processed;
+    private Long imported;
+    private Long duplicates;
+    private Long rejected;
+
+    public enum Type {
+        REJECTED,
+        DUPLICATE,
+        PROGRESS,
+        COMPLETED
+    }
+}
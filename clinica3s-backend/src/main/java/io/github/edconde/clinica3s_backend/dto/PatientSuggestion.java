@@ -0,0 +1,19 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sugerencia del autocompletado de pacientes: solo lo que muestra el selector.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientSuggestion {
+    private Long id;
+    private String name;
+    private String phone;
+}
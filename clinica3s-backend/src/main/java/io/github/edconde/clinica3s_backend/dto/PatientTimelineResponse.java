@@ -0,0 +1,61 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Historial completo de un paciente: sus citas (también las archivadas) de la más antigua a la más reciente,
+ * con los servicios de cada una y el saldo pendiente acumulado tras cada cita.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientTimelineResponse {
+    private Long patientId;
+    private String patientName;
+    private Double totalAmount;
+    private Double paidAmount;
+    private Double outstandingBalance;
+    private List<TimelineEntry> appointments;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimelineEntry {
+        private Long appointmentId;
+        private LocalDateTime dateTime;
+        private Integer durationMinutes;
+        private AppointmentStatus status;
+        private Long dentistId;
+        private String dentistName;
+        private Double totalAmount;
+        private Double paidAmount;
+        private Double pendingAmount;
+        private Boolean paid;
+        // Pendiente de pago acumulado hasta esta cita incluida
+        private Double outstandingBalance;
+        private List<TimelineDetail> details;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimelineDetail {
+        private Long id;
+        private Long serviceId;
+        private String serviceName;
+        private Integer quantity;
+        private Double priceApplied;
+        private Double amount;
+        private LocalDateTime paymentDate;
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.edconde.clinica3s_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Página sin total exacto (pagination=slice): solo indica si hay más elementos, para los clientes con
+ * scroll infinito que no necesitan el count(*). {@code estimatedTotal} solo se rellena si se pide y es
+ * aproximado (estadísticas de la tabla o un recuento guardado en caché).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlicePage<T> {
+    private List<T> content;
+    private int number;
+    private int size;
+    private boolean hasNext;
+    private boolean hasPrevious;
+    private Long estimatedTotal;
+
+    public static <T> SlicePage<T> of(Slice<T> slice, Long estimatedTotal) {
+        return SlicePage.<T>builder()
+                .content(slice.getContent())
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .hasPrevious(slice.hasPrevious())
+                .estimatedTotal(estimatedTotal)
+                .build();
+    }
+}
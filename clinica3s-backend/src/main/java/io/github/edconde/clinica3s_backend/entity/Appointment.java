@@ -15,8 +15,10 @@ import java.util.List;
 @Table(name = "appointment")
 public class Appointment {
 
+    // Secuencia con optimizador pooled: con IDENTITY Hibernate no puede agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "date_time", nullable = false)
@@ -27,14 +29,25 @@ public class Appointment {
     @Builder.Default
     private AppointmentStatus status = AppointmentStatus.PENDING;
 
+    // Duración en minutos; por defecto la suma de las duraciones de sus servicios
+    @Column(name = "duration_minutes", nullable = false)
+    @Builder.Default
+    private Integer durationMinutes = 30;
+
+    // Bloqueo optimista; la API de citas lo expone como ETag / If-Match.
+    // Sin valor por defecto: Spring Data usa version == null para distinguir una cita nueva.
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "total_amount")
     private Double totalAmount;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     private Patient patient;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "dentist_id", nullable = false)
     private Dentist dentist;
 
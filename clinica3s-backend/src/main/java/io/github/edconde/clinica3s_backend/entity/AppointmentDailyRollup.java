@@ -0,0 +1,44 @@
+package io.github.edconde.clinica3s_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Agregado diario de citas por (día, dentista, estado) usado como modelo de lectura para los reportes.
+ * Se mantiene en la misma transacción que las escrituras de citas y puede regenerarse desde las tablas originales.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "appointment_daily_rollup")
+public class AppointmentDailyRollup {
+
+    @EmbeddedId
+    private AppointmentDailyRollupId id;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long appointments = 0L;
+
+    // Citas con al menos un detalle sin pagar
+    @Column(name = "unpaid_appointments", nullable = false)
+    @Builder.Default
+    private Long unpaidAppointments = 0L;
+
+    // Importe cobrado
+    @Column(nullable = false)
+    @Builder.Default
+    private Double invoiced = 0.0;
+
+    // Importe pendiente de cobro
+    @Column(nullable = false)
+    @Builder.Default
+    private Double pending = 0.0;
+
+    // Coste estándar de los servicios aplicados
+    @Column(nullable = false)
+    @Builder.Default
+    private Double cost = 0.0;
+}
@@ -0,0 +1,25 @@
+package io.github.edconde.clinica3s_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class AppointmentDailyRollupId implements Serializable {
+
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate rollupDay;
+
+    @Column(name = "dentist_id", nullable = false)
+    private Long dentistId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+}
@@ -13,8 +13,10 @@ import java.time.LocalDateTime;
 @Table(name = "appointment_detail")
 public class AppointmentDetail {
 
+    // Secuencia con optimizador pooled: con IDENTITY Hibernate no puede agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_detail_seq")
+    @SequenceGenerator(name = "appointment_detail_seq", sequenceName = "appointment_detail_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -27,11 +29,11 @@ public class AppointmentDetail {
     @Column(name = "payment_date")
     private LocalDateTime paymentDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "appointment_id", nullable = false)
     private Appointment appointment;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "service_id", nullable = false)
     private Service service;
 }
@@ -0,0 +1,79 @@
+package io.github.edconde.clinica3s_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila desnormalizada del listado de citas (tabla appointment_list_view): una por cita, con los datos de
+ * paciente y dentista y un resumen de servicios ya preparado, de modo que filtrar, ordenar y paginar el
+ * listado no necesita joins. La mantiene AppointmentListView en la misma transacción que las escrituras
+ * y puede regenerarse desde las tablas originales.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "appointment_list_view", indexes = {
+        @Index(name = "idx_appointment_list_date_time_id", columnList = "date_time, appointment_id"),
+        @Index(name = "idx_appointment_list_dentist_date_time", columnList = "dentist_id, date_time, appointment_id"),
+        @Index(name = "idx_appointment_list_patient_date_time", columnList = "patient_id, date_time"),
+        @Index(name = "idx_appointment_list_status_date_time", columnList = "status, date_time")
+})
+public class AppointmentListEntry {
+
+    // Mismo id que la cita (no generado)
+    @Id
+    @Column(name = "appointment_id")
+    private Long id;
+
+    @Column(name = "date_time", nullable = false)
+    private LocalDateTime dateTime;
+
+    @Column(name = "duration_minutes", nullable = false)
+    private Integer durationMinutes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    @Column(name = "total_amount")
+    private Double totalAmount;
+
+    // Todos los detalles pagados (también si la cita no tiene detalles)
+    @Column(nullable = false)
+    private Boolean paid;
+
+    // Copia de la versión de la cita y de su paciente, para el ETag
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "patient_name")
+    private String patientName;
+
+    @Column(name = "patient_phone")
+    private String patientPhone;
+
+    @Column(name = "patient_email")
+    private String patientEmail;
+
+    @Column(name = "patient_version")
+    private Long patientVersion;
+
+    @Column(name = "dentist_id", nullable = false)
+    private Long dentistId;
+
+    @Column(name = "dentist_name")
+    private String dentistName;
+
+    @Column(name = "dentist_license")
+    private String dentistLicense;
+
+    @Column(name = "services_summary", length = 500)
+    private String servicesSummary;
+}
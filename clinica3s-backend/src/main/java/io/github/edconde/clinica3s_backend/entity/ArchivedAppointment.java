@@ -0,0 +1,61 @@
+package io.github.edconde.clinica3s_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cita histórica movida a appointment_archive por el archivado (pagada por completo y en estado final).
+ * Conserva el id y las columnas de la cita original; es de solo lectura para la aplicación.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "appointment_archive", indexes = {
+        @Index(name = "idx_appointment_archive_date_time_id", columnList = "date_time, id"),
+        @Index(name = "idx_appointment_archive_patient", columnList = "patient_id"),
+        @Index(name = "idx_appointment_archive_dentist_date_time", columnList = "dentist_id, date_time")
+})
+public class ArchivedAppointment {
+
+    // Mismo id que tenía en appointment (no generado)
+    @Id
+    private Long id;
+
+    @Column(name = "date_time", nullable = false)
+    private LocalDateTime dateTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    @Column(name = "duration_minutes", nullable = false)
+    private Integer durationMinutes;
+
+    // Última versión de la cita, para que su ETag no cambie al archivarla
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "total_amount")
+    private Double totalAmount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dentist_id", nullable = false)
+    private Dentist dentist;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    @OneToMany(mappedBy = "appointment")
+    @Builder.Default
+    private List<ArchivedAppointmentDetail> details = new ArrayList<>();
+}
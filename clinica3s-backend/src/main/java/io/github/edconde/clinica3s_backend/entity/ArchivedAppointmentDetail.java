@@ -0,0 +1,40 @@
+package io.github.edconde.clinica3s_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Detalle de una cita archivada (appointment_detail_archive), con el mismo id que tenía en appointment_detail.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "appointment_detail_archive", indexes = {
+        @Index(name = "idx_appointment_detail_archive_appointment", columnList = "appointment_id")
+})
+public class ArchivedAppointmentDetail {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "price_applied", nullable = false)
+    private Double priceApplied;
+
+    @Column(name = "payment_date")
+    private LocalDateTime paymentDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "appointment_id", nullable = false)
+    private ArchivedAppointment appointment;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "service_id", nullable = false)
+    private Service service;
+}
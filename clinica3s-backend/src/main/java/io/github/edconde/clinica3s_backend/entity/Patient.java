@@ -14,7 +14,8 @@ import java.time.LocalDate;
 public class Patient {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+    @SequenceGenerator(name = "patient_seq", sequenceName = "patient_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -29,5 +30,10 @@ public class Patient {
     private String phone;
 
     private String email;
+
+    // Bloqueo optimista; también identifica la versión de la representación (ETag)
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
 
@@ -24,6 +24,16 @@ public class Service {
     @Column(name = "list_price", nullable = false)
     private Double listPrice;
 
+    // Duración estimada en minutos, usada para calcular la duración de las citas
+    @Column(name = "duration_minutes", nullable = false)
+    @Builder.Default
+    private Integer durationMinutes = 30;
+
+    // Bloqueo optimista; también identifica la versión de la representación (ETag)
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @ManyToOne
     @JoinColumn(name = "specialty_id")
     private Specialty specialty;
@@ -17,5 +17,10 @@ public class Specialty {
 
     @Column(nullable = false, unique = true)
     private String name;
+
+    // Bloqueo optimista; también identifica la versión de la representación (ETag)
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
 
@@ -0,0 +1,33 @@
+package io.github.edconde.clinica3s_backend.event;
+
+import io.github.edconde.clinica3s_backend.entity.Appointment;
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de dominio publicado por AppointmentService cada vez que una cita cambia.
+ */
+public record AppointmentChangedEvent(Type type,
+                                      Long appointmentId,
+                                      Long patientId,
+                                      Long dentistId,
+                                      LocalDateTime dateTime,
+                                      AppointmentStatus status) {
+
+    public enum Type {
+        CREATED,
+        PAID,
+        STATUS_CHANGED
+    }
+
+    public static AppointmentChangedEvent of(Type type, Appointment appointment) {
+        return new AppointmentChangedEvent(
+                type,
+                appointment.getId(),
+                appointment.getPatient().getId(),
+                appointment.getDentist().getId(),
+                appointment.getDateTime(),
+                appointment.getStatus());
+    }
+}
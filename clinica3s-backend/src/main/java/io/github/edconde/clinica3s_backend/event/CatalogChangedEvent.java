@@ -0,0 +1,20 @@
+package io.github.edconde.clinica3s_backend.event;
+
+/**
+ * Evento de dominio publicado cuando cambia el catálogo de servicios o especialidades.
+ */
+public record CatalogChangedEvent(Type type, Long id) {
+
+    public enum Type {
+        SERVICE,
+        SPECIALTY
+    }
+
+    public static CatalogChangedEvent service(Long serviceId) {
+        return new CatalogChangedEvent(Type.SERVICE, serviceId);
+    }
+
+    public static CatalogChangedEvent specialty(Long specialtyId) {
+        return new CatalogChangedEvent(Type.SPECIALTY, specialtyId);
+    }
+}
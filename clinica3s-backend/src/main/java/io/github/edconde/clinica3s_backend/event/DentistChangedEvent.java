@@ -0,0 +1,13 @@
+package io.github.edconde.clinica3s_backend.event;
+
+/**
+ * Evento de dominio publicado por DentistService al crear, modificar o eliminar dentistas.
+ */
+public record DentistChangedEvent(Type type, Long dentistId) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
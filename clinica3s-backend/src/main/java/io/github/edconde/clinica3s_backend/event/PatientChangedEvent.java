@@ -0,0 +1,13 @@
+package io.github.edconde.clinica3s_backend.event;
+
+/**
+ * Evento de dominio publicado por PatientService al crear, modificar o eliminar pacientes.
+ */
+public record PatientChangedEvent(Type type, Long patientId) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
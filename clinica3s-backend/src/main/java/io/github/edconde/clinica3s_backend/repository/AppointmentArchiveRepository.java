@@ -0,0 +1,70 @@
+package io.github.edconde.clinica3s_backend.repository;
+import io.github.edconde.clinica3s_backend.entity.ArchivedAppointment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+@Repository
+public interface AppointmentArchiveRepository extends JpaRepository<ArchivedAppointment, Long>,
+        JpaSpecificationExecutor<ArchivedAppointment> {
+
+    // Movimiento de un bloque de citas a las tablas de archivo: copia con INSERT ... SELECT y borrado del original,
+    // sin cargar entidades (SQL portable entre H2, PostgreSQL y MySQL)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO appointment_archive
+                (id, date_time, status, duration_minutes, version, total_amount, patient_id, dentist_id, archived_at)
+            SELECT id, date_time, status, duration_minutes, version, total_amount, patient_id, dentist_id, :archivedAt
+            FROM appointment WHERE id IN (:ids)
+            """)
+    int copyAppointments(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO appointment_detail_archive (id, quantity, price_applied, payment_date, appointment_id, service_id)
+            SELECT id, quantity, price_applied, payment_date, appointment_id, service_id
+            FROM appointment_detail WHERE appointment_id IN (:ids)
+            """)
+    int copyDetails(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = "DELETE FROM appointment_detail WHERE appointment_id IN (:ids)")
+    int deleteHotDetails(@Param("ids") Collection<Long> ids);
+
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = "DELETE FROM appointment WHERE id IN (:ids)")
+    int deleteHotAppointments(@Param("ids") Collection<Long> ids);
+
+    // Fecha de la cita archivada más reciente: las consultas que empiezan después no necesitan el archivo
+    @Query("select max(a.dateTime) from ArchivedAppointment a")
+    Optional<LocalDateTime> findMaxDateTime();
+
+    @Query("select a.version as version, p.version as patientVersion from ArchivedAppointment a join a.patient p where a.id = :id")
+    Optional<AppointmentRepository.VersionStamp> findVersionStampById(@Param("id") Long id);
+
+    // Regeneración del listado de citas, igual que en AppointmentRepository
+    @Query("select a.id from ArchivedAppointment a where a.id > :afterId order by a.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select distinct d.appointment.id from ArchivedAppointmentDetail d where d.service.id = :serviceId")
+    List<Long> findIdsByServiceId(@Param("serviceId") Long serviceId);
+
+    @Query("select distinct a from ArchivedAppointment a " +
+            "join fetch a.patient join fetch a.dentist dn left join fetch dn.user " +
+            "left join fetch a.details d left join fetch d.service " +
+            "where a.id in :ids")
+    List<ArchivedAppointment> findForListView(@Param("ids") Collection<Long> ids);
+
+    @Query("select distinct a from ArchivedAppointment a " +
+            "join fetch a.dentist dn left join fetch dn.user " +
+            "left join fetch a.details d left join fetch d.service " +
+            "where a.patient.id = :patientId")
+    List<ArchivedAppointment> findTimelineByPatientId(@Param("patientId") Long patientId);
+}
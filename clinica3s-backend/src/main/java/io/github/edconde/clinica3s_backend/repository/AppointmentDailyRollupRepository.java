@@ -0,0 +1,107 @@
+package io.github.edconde.clinica3s_backend.repository;
+import io.github.edconde.clinica3s_backend.entity.AppointmentDailyRollup;
+import io.github.edconde.clinica3s_backend.entity.AppointmentDailyRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+@Repository
+public interface AppointmentDailyRollupRepository extends JpaRepository<AppointmentDailyRollup, AppointmentDailyRollupId> {
+
+    // Suma la aportación a la fila (día, dentista, estado) y la crea si no existe, en una única sentencia
+    // atómica: dos transacciones que crean a la vez la primera cita de la fila no chocan con la clave primaria
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO appointment_daily_rollup
+                (rollup_day, dentist_id, status, appointments, unpaid_appointments, invoiced, pending, cost)
+            VALUES (:day, :dentistId, :status, :appointments, :unpaid, :invoiced, :pending, :cost)
+            ON CONFLICT (rollup_day, dentist_id, status) DO UPDATE SET
+                appointments = appointment_daily_rollup.appointments + EXCLUDED.appointments,
+                unpaid_appointments = appointment_daily_rollup.unpaid_appointments + EXCLUDED.unpaid_appointments,
+                invoiced = appointment_daily_rollup.invoiced + EXCLUDED.invoiced,
+                pending = appointment_daily_rollup.pending + EXCLUDED.pending,
+                cost = appointment_daily_rollup.cost + EXCLUDED.cost
+            """)
+    int upsertPostgres(@Param("day") LocalDate day,
+                       @Param("dentistId") Long dentistId,
+                       @Param("status") String status,
+                       @Param("appointments") long appointments,
+                       @Param("unpaid") long unpaid,
+                       @Param("invoiced") double invoiced,
+                       @Param("pending") double pending,
+                       @Param("cost") double cost);
+
+    // Equivalente para H2 (desarrollo), que no admite ON CONFLICT
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            MERGE INTO appointment_daily_rollup r
+            USING (SELECT CAST(:day AS DATE) AS rollup_day, CAST(:dentistId AS BIGINT) AS dentist_id,
+                          CAST(:status AS VARCHAR(50)) AS status, CAST(:appointments AS BIGINT) AS appointments,
+                          CAST(:unpaid AS BIGINT) AS unpaid, CAST(:invoiced AS DOUBLE PRECISION) AS invoiced,
+                          CAST(:pending AS DOUBLE PRECISION) AS pending, CAST(:cost AS DOUBLE PRECISION) AS cost) s
+            ON r.rollup_day = s.rollup_day AND r.dentist_id = s.dentist_id AND r.status = s.status
+            WHEN MATCHED THEN UPDATE SET
+                appointments = r.appointments + s.appointments,
+                unpaid_appointments = r.unpaid_appointments + s.unpaid,
+                invoiced = r.invoiced + s.invoiced,
+                pending = r.pending + s.pending,
+                cost = r.cost + s.cost
+            WHEN NOT MATCHED THEN INSERT
+                (rollup_day, dentist_id, status, appointments, unpaid_appointments, invoiced, pending, cost)
+                VALUES (s.rollup_day, s.dentist_id, s.status, s.appointments, s.unpaid, s.invoiced, s.pending, s.cost)
+            """)
+    int mergeH2(@Param("day") LocalDate day,
+                @Param("dentistId") Long dentistId,
+                @Param("status") String status,
+                @Param("appointments") long appointments,
+                @Param("unpaid") long unpaid,
+                @Param("invoiced") double invoiced,
+                @Param("pending") double pending,
+                @Param("cost") double cost);
+
+    @Modifying
+    @Query("delete from AppointmentDailyRollup")
+    int deleteAllRows();
+
+    // Regenera los agregados desde appointment/appointment_detail y sus tablas de archivo
+    // (SQL portable entre H2, PostgreSQL y MySQL)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO appointment_daily_rollup
+                (rollup_day, dentist_id, status, appointments, unpaid_appointments, invoiced, pending, cost)
+            SELECT CAST(a.date_time AS DATE), a.dentist_id, a.status, COUNT(*),
+                   SUM(CASE WHEN t.unpaid_details > 0 THEN 1 ELSE 0 END),
+                   COALESCE(SUM(t.invoiced), 0), COALESCE(SUM(t.pending), 0), COALESCE(SUM(t.cost), 0)
+            FROM (
+                SELECT id, date_time, dentist_id, status FROM appointment
+                UNION ALL
+                SELECT id, date_time, dentist_id, status FROM appointment_archive
+            ) a
+            LEFT JOIN (
+                SELECT d.appointment_id,
+                       SUM(CASE WHEN d.payment_date IS NULL THEN 1 ELSE 0 END) AS unpaid_details,
+                       SUM(CASE WHEN d.payment_date IS NOT NULL THEN d.price_applied * d.quantity ELSE 0 END) AS invoiced,
+                       SUM(CASE WHEN d.payment_date IS NULL THEN d.price_applied * d.quantity ELSE 0 END) AS pending,
+                       SUM(s.standard_cost * d.quantity) AS cost
+                FROM (
+                    SELECT appointment_id, payment_date, price_applied, quantity, service_id FROM appointment_detail
+                    UNION ALL
+                    SELECT appointment_id, payment_date, price_applied, quantity, service_id FROM appointment_detail_archive
+                ) d
+                JOIN service s ON s.id = d.service_id
+                GROUP BY d.appointment_id
+            ) t ON t.appointment_id = a.id
+            GROUP BY CAST(a.date_time AS DATE), a.dentist_id, a.status
+            """)
+    int rebuildFromAppointments();
+
+    // Filas de agregados en el rango [start, end) sobre rollup_day, en formato compacto:
+    // día, dentista, estado, citas, citas sin pagar, cobrado, pendiente, coste
+    @Query("select r.id.rollupDay, r.id.dentistId, r.id.status, r.appointments, r.unpaidAppointments, " +
+            "r.invoiced, r.pending, r.cost " +
+            "from AppointmentDailyRollup r where r.id.rollupDay >= :start and r.id.rollupDay < :end")
+    List<Object[]> findRowsBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+}
@@ -0,0 +1,49 @@
+package io.github.edconde.clinica3s_backend.repository;
+import io.github.edconde.clinica3s_backend.entity.AppointmentListEntry;
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+@Repository
+public interface AppointmentListEntryRepository extends JpaRepository<AppointmentListEntry, Long>,
+        JpaSpecificationExecutor<AppointmentListEntry> {
+
+    // Citas de un dentista en [from, to), servidas por el índice (dentist_id, date_time, appointment_id)
+    @Query("select e from AppointmentListEntry e where e.dentistId = :dentistId and e.dateTime >= :from and e.dateTime < :to " +
+            "order by e.dateTime, e.id")
+    List<AppointmentListEntry> findByDentistBetween(@Param("dentistId") Long dentistId,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    // Mismo incremento de versión que el UPDATE masivo sobre appointment
+    @Modifying
+    @Query("update AppointmentListEntry e set e.status = :status, e.version = e.version + 1 where e.id in :ids")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("status") AppointmentStatus status);
+
+    @Modifying
+    @Query("update AppointmentListEntry e set e.paid = true where e.id in :ids")
+    int markPaidByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update AppointmentListEntry e set e.patientName = :name, e.patientPhone = :phone, e.patientEmail = :email, " +
+            "e.patientVersion = :version where e.patientId = :patientId")
+    int updatePatient(@Param("patientId") Long patientId,
+                      @Param("name") String name,
+                      @Param("phone") String phone,
+                      @Param("email") String email,
+                      @Param("version") Long version);
+
+    @Modifying
+    @Query("update AppointmentListEntry e set e.dentistName = :name, e.dentistLicense = :license where e.dentistId = :dentistId")
+    int updateDentist(@Param("dentistId") Long dentistId, @Param("name") String name, @Param("license") String license);
+
+    @Modifying
+    @Query("delete from AppointmentListEntry")
+    int deleteAllRows();
+}
@@ -0,0 +1,61 @@
+package io.github.edconde.clinica3s_backend.repository;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentListEntry;
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mismos filtros que {@link AppointmentSpecifications}, sobre el modelo de lectura appointment_list_view.
+ */
+public class AppointmentListSpecifications {
+
+    public static Specification<AppointmentListEntry> hasPatientId(Long patientId) {
+        return (root, query, cb) -> patientId == null ? null : cb.equal(root.get("patientId"), patientId);
+    }
+
+    public static Specification<AppointmentListEntry> hasDentistId(Long dentistId) {
+        return (root, query, cb) -> dentistId == null ? null : cb.equal(root.get("dentistId"), dentistId);
+    }
+
+    public static Specification<AppointmentListEntry> hasStatus(AppointmentStatus status) {
+        return (root, query, cb) -> status == null ? null : cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<AppointmentListEntry> dateTimeAfter(LocalDateTime startDate) {
+        return (root, query, cb) -> startDate == null ? null : cb.greaterThanOrEqualTo(root.get("dateTime"), startDate);
+    }
+
+    public static Specification<AppointmentListEntry> dateTimeBefore(LocalDateTime endDate) {
+        return (root, query, cb) -> endDate == null ? null : cb.lessThanOrEqualTo(root.get("dateTime"), endDate);
+    }
+
+    // Paginación por cursor: filas estrictamente posteriores a (dateTime, id)
+    public static Specification<AppointmentListEntry> keysetAfter(LocalDateTime dateTime, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("dateTime"), dateTime),
+                cb.and(cb.equal(root.get("dateTime"), dateTime), cb.greaterThan(root.get("id"), id)));
+    }
+
+    // Paginación por cursor: filas estrictamente anteriores a (dateTime, id)
+    public static Specification<AppointmentListEntry> keysetBefore(LocalDateTime dateTime, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("dateTime"), dateTime),
+                cb.and(cb.equal(root.get("dateTime"), dateTime), cb.lessThan(root.get("id"), id)));
+    }
+
+    public static Specification<AppointmentListEntry> buildSpecification(
+            Long patientId,
+            Long dentistId,
+            AppointmentStatus status,
+            LocalDateTime startDate,
+            LocalDateTime endDate) {
+
+        return Specification.where(hasPatientId(patientId))
+                .and(hasDentistId(dentistId))
+                .and(hasStatus(status))
+                .and(dateTimeAfter(startDate))
+                .and(dateTimeBefore(endDate));
+    }
+}
@@ -3,14 +3,26 @@ import io.github.edconde.clinica3s_backend.entity.Appointment;
 import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long>, JpaSpecificationExecutor<Appointment> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, JpaSpecificationExecutor<Appointment>,
+        AppointmentRepositoryCustom {
+    // Plan de carga de los listados: paciente, dentista y su usuario en la misma consulta que la página.
+    // Los detalles se cargan después para toda la página con fetchDetails.
+    @EntityGraph(attributePaths = {"patient", "dentist", "dentist.user"})
     List<Appointment> findByDentistId(Long dentistId);
+    @EntityGraph(attributePaths = {"patient", "dentist", "dentist.user"})
     Page<Appointment> findByDentistId(Long dentistId, Pageable pageable);
     List<Appointment> findByPatientId(Long patientId);
     Page<Appointment> findByPatientId(Long patientId, Pageable pageable);
@@ -18,4 +30,132 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>,
     Page<Appointment> findByStatus(AppointmentStatus status, Pageable pageable);
     List<Appointment> findByDateTimeBetween(LocalDateTime start, LocalDateTime end);
     Page<Appointment> findByDateTimeBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"patient", "dentist", "dentist.user"})
+    List<Appointment> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = {"patient", "dentist", "dentist.user"})
+    Page<Appointment> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"patient", "dentist", "dentist.user"})
+    Page<Appointment> findAll(Specification<Appointment> spec, Pageable pageable);
+
+    // Cita completa (con detalles y servicios) en una sola consulta
+    @EntityGraph(attributePaths = {"patient", "dentist", "dentist.user", "details", "details.service", "details.service.specialty"})
+    Optional<Appointment> findWithDetailsById(Long id);
+
+    // Versiones que forman el ETag de una cita, sin cargar la cita completa
+    @Query("select a.version as version, p.version as patientVersion from Appointment a join a.patient p where a.id = :id")
+    Optional<VersionStamp> findVersionStampById(@Param("id") Long id);
+
+    // Segunda fase de los listados: inicializa los detalles (y su servicio) de las citas ya cargadas
+    @Query("select distinct a from Appointment a " +
+            "left join fetch a.details d left join fetch d.service s left join fetch s.specialty " +
+            "where a.id in :ids")
+    List<Appointment> fetchDetails(@Param("ids") Collection<Long> ids);
+
+    // Citas que puede mover el archivado: anteriores al horizonte, en estado final y sin detalles pendientes de pago
+    @Query("select a.id from Appointment a where a.dateTime < :before and a.status in :statuses " +
+            "and not exists (select d.id from AppointmentDetail d where d.appointment = a and d.paymentDate is null) " +
+            "order by a.id")
+    List<Long> findArchivableIds(@Param("before") LocalDateTime before,
+                                 @Param("statuses") Collection<AppointmentStatus> statuses,
+                                 Pageable pageable);
+
+    // Regeneración del listado desnormalizado: ids por bloques y cada bloque con todo lo que necesita la fila
+    @Query("select a.id from Appointment a where a.id > :afterId order by a.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Citas que incluyen un servicio, para reescribir su resumen en el listado cuando cambia el nombre
+    @Query("select distinct d.appointment.id from AppointmentDetail d where d.service.id = :serviceId")
+    List<Long> findIdsByServiceId(@Param("serviceId") Long serviceId);
+
+    @Query("select distinct a from Appointment a " +
+            "join fetch a.patient join fetch a.dentist dn left join fetch dn.user " +
+            "left join fetch a.details d left join fetch d.service " +
+            "where a.id in :ids")
+    List<Appointment> findForListView(@Param("ids") Collection<Long> ids);
+
+    // Historial de un paciente: cada cita con su dentista, detalles y servicios, en una sola consulta
+    @Query("select distinct a from Appointment a " +
+            "join fetch a.dentist dn left join fetch dn.user " +
+            "left join fetch a.details d left join fetch d.service " +
+            "where a.patient.id = :patientId")
+    List<Appointment> findTimelineByPatientId(@Param("patientId") Long patientId);
+
+    // Estado de cada cita con sus importes agregados, para calcular sin cargar entidades las aportaciones
+    // a los agregados diarios de las operaciones masivas
+    @Query("select a.id as id, a.patient.id as patientId, a.dentist.id as dentistId, a.dateTime as dateTime, " +
+            "a.status as status, a.durationMinutes as durationMinutes, " +
+            "coalesce(sum(case when d.id is not null and d.paymentDate is null then 1 else 0 end), 0) as unpaidDetails, " +
+            "coalesce(sum(case when d.paymentDate is not null then d.priceApplied * d.quantity else 0.0 end), 0.0) as invoiced, " +
+            "coalesce(sum(case when d.id is not null and d.paymentDate is null then d.priceApplied * d.quantity else 0.0 end), 0.0) as pending, " +
+            "coalesce(sum(s.standardCost * d.quantity), 0.0) as cost " +
+            "from Appointment a left join a.details d left join d.service s where a.id in :ids " +
+            "group by a.id, a.patient.id, a.dentist.id, a.dateTime, a.status, a.durationMinutes")
+    List<AppointmentState> findStates(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update AppointmentDetail d set d.paymentDate = :paymentDate " +
+            "where d.paymentDate is null and d.appointment.id in :ids")
+    int markDetailsPaid(@Param("ids") Collection<Long> ids, @Param("paymentDate") LocalDateTime paymentDate);
+
+    // Incrementa la versión igual que lo haría Hibernate al guardar cada cita
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Appointment a set a.status = :status, a.version = a.version + 1 where a.id in :ids")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("status") AppointmentStatus status);
+
+    // Pago de una cita ya completada: solo cambian los detalles, así que Hibernate no incrementa la versión
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Appointment a set a.version = a.version + 1 where a.id = :id and a.version = :version")
+    int incrementVersion(@Param("id") Long id, @Param("version") Long version);
+
+    // Huecos ocupados para el índice de agenda (se excluye el estado que libera el hueco)
+    @Query("select a.id as id, a.dentist.id as dentistId, a.dateTime as dateTime, a.durationMinutes as durationMinutes " +
+            "from Appointment a where a.dateTime >= :from and a.status <> :excluded")
+    List<ScheduledSlot> findScheduledSlotsFrom(@Param("from") LocalDateTime from,
+                                               @Param("excluded") AppointmentStatus excluded);
+
+    @Query("select a.id as id, a.dentist.id as dentistId, a.dateTime as dateTime, a.durationMinutes as durationMinutes " +
+            "from Appointment a where a.dentist.id = :dentistId and a.dateTime >= :from and a.dateTime < :to " +
+            "and a.status <> :excluded")
+    List<ScheduledSlot> findScheduledSlotsBetween(@Param("dentistId") Long dentistId,
+                                                  @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to,
+                                                  @Param("excluded") AppointmentStatus excluded);
+
+    // Citas posteriores a "now" dentro del rango [start, end) sobre date_time
+    @Query("select count(a) from Appointment a " +
+            "where a.dateTime > :now and a.dateTime >= :start and a.dateTime < :end")
+    long countUpcomingBetween(@Param("now") LocalDateTime now,
+                              @Param("start") LocalDateTime start,
+                              @Param("end") LocalDateTime end);
+
+    interface VersionStamp {
+        Long getVersion();
+        Long getPatientVersion();
+    }
+
+    interface AppointmentState {
+        Long getId();
+        Long getPatientId();
+        Long getDentistId();
+        LocalDateTime getDateTime();
+        AppointmentStatus getStatus();
+        Integer getDurationMinutes();
+        Long getUnpaidDetails();
+        Double getInvoiced();
+        Double getPending();
+        Double getCost();
+    }
+
+    interface ScheduledSlot {
+        Long getId();
+        Long getDentistId();
+        LocalDateTime getDateTime();
+        Integer getDurationMinutes();
+    }
 }
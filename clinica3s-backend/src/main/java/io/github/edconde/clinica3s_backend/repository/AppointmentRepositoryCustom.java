@@ -0,0 +1,16 @@
+package io.github.edconde.clinica3s_backend.repository;
+import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.entity.Appointment;
+import org.springframework.data.jpa.domain.Specification;
+import java.util.List;
+import java.util.Optional;
+/**
+ * Lectura de citas proyectada directamente a {@link AppointmentResponse}, sin cargar entidades gestionadas.
+ */
+public interface AppointmentRepositoryCustom {
+    Optional<AppointmentResponse> findResponseById(Long id);
+    // Misma respuesta para una cita movida al archivo
+    Optional<AppointmentResponse> findArchivedResponseById(Long id);
+    // Ids de las citas que cumplen el filtro, ordenados por (dateTime, id) y limitados a maxResults
+    List<Long> findIds(Specification<Appointment> spec, int maxResults);
+}
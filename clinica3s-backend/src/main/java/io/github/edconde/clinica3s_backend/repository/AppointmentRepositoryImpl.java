@@ -0,0 +1,154 @@
+package io.github.edconde.clinica3s_backend.repository;
+
+import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.entity.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Implementación de {@link AppointmentRepositoryCustom} con consultas de tuplas: solo se leen las columnas
+ * que necesita la respuesta y no se crean entidades ni instantáneas para el dirty checking.
+ */
+public class AppointmentRepositoryImpl implements AppointmentRepositoryCustom {
+
+    // Posiciones de las columnas de cabecera en la tupla
+    private static final int ID = 0;
+    private static final int DATE_TIME = 1;
+    private static final int STATUS = 2;
+    private static final int TOTAL_AMOUNT = 3;
+    private static final int PATIENT_ID = 4;
+    private static final int PATIENT_NAME = 5;
+    private static final int PATIENT_PHONE = 6;
+    private static final int PATIENT_EMAIL = 7;
+    private static final int DENTIST_ID = 8;
+    private static final int DENTIST_NAME = 9;
+    private static final int DENTIST_LICENSE = 10;
+    private static final int DURATION = 11;
+    private static final int VERSION = 12;
+    private static final int PATIENT_VERSION = 13;
+    private static final int HEADER_COLUMNS = 14;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<AppointmentResponse> findResponseById(Long id) {
+        return findResponseById(Appointment.class, id);
+    }
+
+    @Override
+    public Optional<AppointmentResponse> findArchivedResponseById(Long id) {
+        return findResponseById(ArchivedAppointment.class, id);
+    }
+
+    // Cita y archivo comparten los nombres de atributo, así que la misma consulta sirve para ambas entidades
+    private Optional<AppointmentResponse> findResponseById(Class<?> entity, Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(entity);
+        Join<?, ?> detail = root.join("details", JoinType.LEFT);
+        Join<?, ?> service = detail.join("service", JoinType.LEFT);
+
+        // Una sola consulta: la cabecera se repite en cada fila de detalle
+        List<Selection<?>> selection = headerSelection(root);
+        selection.addAll(detailSelection(detail, service));
+        query.multiselect(selection)
+                .where(cb.equal(root.get("id"), id))
+                .orderBy(cb.asc(detail.get("id")));
+
+        AppointmentResponse response = null;
+        for (Tuple row : readOnly(entityManager.createQuery(query)).getResultList()) {
+            if (response == null) {
+                response = mapHeader(row);
+            }
+            if (row.get(HEADER_COLUMNS) != null) {
+                response.getDetails().add(mapDetail(row, HEADER_COLUMNS));
+            }
+        }
+        if (response != null) {
+            response.setPaid(response.getDetails().stream().allMatch(AppointmentResponse.DetailInfo::getPaid));
+        }
+        return Optional.ofNullable(response);
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Appointment> spec, int maxResults) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Appointment> root = query.from(Appointment.class);
+        query.select(root.get("id"));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("dateTime")), cb.asc(root.get("id")));
+
+        return readOnly(entityManager.createQuery(query)).setMaxResults(maxResults).getResultList();
+    }
+
+    private static List<Selection<?>> headerSelection(Root<?> root) {
+        Join<?, ?> patient = root.join("patient");
+        Join<?, ?> dentist = root.join("dentist");
+        Join<?, ?> user = dentist.join("user", JoinType.LEFT);
+
+        return new ArrayList<>(List.of(
+                root.get("id"), root.get("dateTime"), root.get("status"), root.get("totalAmount"),
+                patient.get("id"), patient.get("name"), patient.get("phone"), patient.get("email"),
+                dentist.get("id"), user.get("name"), dentist.get("licenseNumber"), root.get("durationMinutes"),
+                root.get("version"), patient.get("version")));
+    }
+
+    private static List<Selection<?>> detailSelection(From<?, ?> detail, From<?, ?> service) {
+        return List.of(detail.get("id"), service.get("name"), detail.get("quantity"),
+                detail.get("priceApplied"), detail.get("paymentDate"));
+    }
+
+    private static AppointmentResponse mapHeader(Tuple row) {
+        return AppointmentResponse.builder()
+                .id(row.get(ID, Long.class))
+                .dateTime(row.get(DATE_TIME, LocalDateTime.class))
+                .durationMinutes(row.get(DURATION, Integer.class))
+                .status(row.get(STATUS, AppointmentStatus.class))
+                .totalAmount(row.get(TOTAL_AMOUNT, Double.class))
+                .version(row.get(VERSION, Long.class))
+                .patient(AppointmentResponse.PatientInfo.builder()
+                        .id(row.get(PATIENT_ID, Long.class))
+                        .version(row.get(PATIENT_VERSION, Long.class))
+                        .name(row.get(PATIENT_NAME, String.class))
+                        .phone(row.get(PATIENT_PHONE, String.class))
+                        .email(row.get(PATIENT_EMAIL, String.class))
+                        .build())
+                .dentist(AppointmentResponse.DentistInfo.builder()
+                        .id(row.get(DENTIST_ID, Long.class))
+                        .name(row.get(DENTIST_NAME, String.class))
+                        .licenseNumber(row.get(DENTIST_LICENSE, String.class))
+                        .build())
+                .details(new ArrayList<>())
+                .build();
+    }
+
+    private static AppointmentResponse.DetailInfo mapDetail(Tuple row, int offset) {
+        LocalDateTime paymentDate = row.get(offset + 4, LocalDateTime.class);
+        return AppointmentResponse.DetailInfo.builder()
+                .id(row.get(offset, Long.class))
+                .serviceName(row.get(offset + 1, String.class))
+                .quantity(row.get(offset + 2, Integer.class))
+                .priceApplied(row.get(offset + 3, Double.class))
+                .paymentDate(paymentDate)
+                .paid(paymentDate != null)
+                .build();
+    }
+
+    private static <T> TypedQuery<T> readOnly(TypedQuery<T> query) {
+        return query.setHint(HibernateHints.HINT_READ_ONLY, true);
+    }
+}
@@ -2,32 +2,51 @@ package io.github.edconde.clinica3s_backend.repository;
 
 import io.github.edconde.clinica3s_backend.entity.Appointment;
 import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import io.github.edconde.clinica3s_backend.entity.ArchivedAppointment;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDateTime;
 
+/**
+ * Filtros de citas por nombre de atributo, válidos tanto para {@link Appointment} como para
+ * {@link ArchivedAppointment}, que comparten atributos.
+ */
 public class AppointmentSpecifications {
 
-    public static Specification<Appointment> hasPatientId(Long patientId) {
+    public static <T> Specification<T> hasPatientId(Long patientId) {
         return (root, query, cb) -> patientId == null ? null : cb.equal(root.get("patient").get("id"), patientId);
     }
 
-    public static Specification<Appointment> hasDentistId(Long dentistId) {
+    public static <T> Specification<T> hasDentistId(Long dentistId) {
         return (root, query, cb) -> dentistId == null ? null : cb.equal(root.get("dentist").get("id"), dentistId);
     }
 
-    public static Specification<Appointment> hasStatus(AppointmentStatus status) {
+    public static <T> Specification<T> hasStatus(AppointmentStatus status) {
         return (root, query, cb) -> status == null ? null : cb.equal(root.get("status"), status);
     }
 
-    public static Specification<Appointment> dateTimeAfter(LocalDateTime startDate) {
+    public static <T> Specification<T> dateTimeAfter(LocalDateTime startDate) {
         return (root, query, cb) -> startDate == null ? null : cb.greaterThanOrEqualTo(root.get("dateTime"), startDate);
     }
 
-    public static Specification<Appointment> dateTimeBefore(LocalDateTime endDate) {
+    public static <T> Specification<T> dateTimeBefore(LocalDateTime endDate) {
         return (root, query, cb) -> endDate == null ? null : cb.lessThanOrEqualTo(root.get("dateTime"), endDate);
     }
 
+    // Paginación por cursor: citas estrictamente posteriores a (dateTime, id)
+    public static <T> Specification<T> keysetAfter(LocalDateTime dateTime, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("dateTime"), dateTime),
+                cb.and(cb.equal(root.get("dateTime"), dateTime), cb.greaterThan(root.get("id"), id)));
+    }
+
+    // Paginación por cursor: citas estrictamente anteriores a (dateTime, id)
+    public static <T> Specification<T> keysetBefore(LocalDateTime dateTime, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("dateTime"), dateTime),
+                cb.and(cb.equal(root.get("dateTime"), dateTime), cb.lessThan(root.get("id"), id)));
+    }
+
     public static Specification<Appointment> buildSpecification(
             Long patientId,
             Long dentistId,
@@ -35,11 +54,31 @@ public class AppointmentSpecifications {
             LocalDateTime startDate,
             LocalDateTime endDate) {
 
-        return Specification.where(hasPatientId(patientId))
+        return build(patientId, dentistId, status, startDate, endDate);
+    }
+
+    // Mismos filtros sobre las citas archivadas
+    public static Specification<ArchivedAppointment> buildArchiveSpecification(
+            Long patientId,
+            Long dentistId,
+            AppointmentStatus status,
+            LocalDateTime startDate,
+            LocalDateTime endDate) {
+
+        return build(patientId, dentistId, status, startDate, endDate);
+    }
+
+    private static <T> Specification<T> build(
+            Long patientId,
+            Long dentistId,
+            AppointmentStatus status,
+            LocalDateTime startDate,
+            LocalDateTime endDate) {
+
+        return Specification.where(AppointmentSpecifications.<T>hasPatientId(patientId))
                 .and(hasDentistId(dentistId))
                 .and(hasStatus(status))
                 .and(dateTimeAfter(startDate))
                 .and(dateTimeBefore(endDate));
     }
 }
-
@@ -2,10 +2,30 @@ package io.github.edconde.clinica3s_backend.repository;
 import io.github.edconde.clinica3s_backend.entity.Dentist;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface DentistRepository extends JpaRepository<Dentist, Long>, JpaSpecificationExecutor<Dentist> {
     Optional<Dentist> findByUserId(Long userId);
     Optional<Dentist> findByLicenseNumber(String licenseNumber);
+
+    @Query("select dn.id as id, u.name as name, dn.commissionRate as commissionRate from Dentist dn left join dn.user u")
+    List<DentistSummary> findSummaries();
+
+    @Query("select dn.id as id, u.name as name, dn.commissionRate as commissionRate from Dentist dn " +
+            "join dn.specialties s left join dn.user u where s.id = :specialtyId order by dn.id")
+    List<DentistSummary> findSummariesBySpecialtyId(@Param("specialtyId") Long specialtyId);
+
+    @Query("select dn.id as id, u.name as name, dn.commissionRate as commissionRate from Dentist dn " +
+            "left join dn.user u where dn.id = :id")
+    Optional<DentistSummary> findSummaryById(@Param("id") Long id);
+
+    interface DentistSummary {
+        Long getId();
+        String getName();
+        Double getCommissionRate();
+    }
 }
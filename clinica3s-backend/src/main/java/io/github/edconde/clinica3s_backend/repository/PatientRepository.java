@@ -2,9 +2,35 @@ package io.github.edconde.clinica3s_backend.repository;
 import io.github.edconde.clinica3s_backend.entity.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long>, JpaSpecificationExecutor<Patient> {
     Optional<Patient> findByEmail(String email);
+
+    @Query("select p.version from Patient p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Carga del índice de búsqueda: solo los campos indexados
+    @Query("select p.id as id, p.name as name, p.phone as phone, p.email as email from Patient p")
+    List<SearchEntry> findSearchEntries();
+
+    interface SearchEntry {
+        Long getId();
+        String getName();
+        String getPhone();
+        String getEmail();
+    }
+
+    // Detección de duplicados: los campos del índice más la fecha de nacimiento
+    @Query("select p.id as id, p.name as name, p.phone as phone, p.email as email, p.birthDate as birthDate from Patient p")
+    List<DuplicateEntry> findDuplicateEntries();
+
+    interface DuplicateEntry extends SearchEntry {
+        LocalDate getBirthDate();
+    }
 }
@@ -1,9 +1,14 @@
 package io.github.edconde.clinica3s_backend.repository;
 import io.github.edconde.clinica3s_backend.entity.Specialty;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 @Repository
 public interface SpecialtyRepository extends JpaRepository<Specialty, Long> {
     Optional<Specialty> findByName(String name);
+
+    @Query("select s.version from Specialty s where s.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
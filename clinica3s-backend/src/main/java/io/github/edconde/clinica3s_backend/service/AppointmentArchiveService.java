@@ -0,0 +1,100 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import io.github.edconde.clinica3s_backend.repository.AppointmentArchiveRepository;
+import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Archivado de citas históricas: mueve a appointment_archive y appointment_detail_archive las citas
+ * anteriores al horizonte configurado que están en estado final (COMPLETED o NO_SHOW) y pagadas por
+ * completo, en bloques de ids con una transacción por bloque para no bloquear las tablas durante toda
+ * la ejecución.
+ * <p>
+ * Archivar no cambia los agregados diarios (los reportes siguen saliendo de ellos) ni el listado de
+ * citas, que conserva la fila de cada cita archivada. Las citas archivadas son de solo lectura.
+ */
+@Service
+@Slf4j
+public class AppointmentArchiveService {
+
+    private static final List<AppointmentStatus> FINAL_STATUSES = List.of(AppointmentStatus.COMPLETED, AppointmentStatus.NO_SHOW);
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration horizon;
+    private final int chunkSize;
+
+    public AppointmentArchiveService(AppointmentRepository appointmentRepository,
+                                     AppointmentArchiveRepository archiveRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${application.appointments.archive.enabled:true}") boolean enabled,
+                                     @Value("${application.appointments.archive.horizon:730d}") Duration horizon,
+                                     @Value("${application.appointments.archive.chunk-size:500}") int chunkSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.horizon = horizon;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(cron = "${application.appointments.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * Archiva todas las citas que cumplen las condiciones y devuelve cuántas se han movido.
+     */
+    public int archive() {
+        LocalDateTime before = LocalDate.now().atStartOfDay().minus(horizon);
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> moveChunk(before));
+            total += moved;
+        } while (moved == chunkSize);
+        log.info("Citas archivadas anteriores a {}: {}", before, total);
+        return total;
+    }
+
+    /**
+     * Indica si una consulta que empieza en {@code startDate} (null = sin límite) puede encontrar citas
+     * archivadas. Es una lectura de max(date_time) sobre el índice del archivo, así que refleja también
+     * lo archivado por otras instancias.
+     */
+    public boolean reachesArchive(LocalDateTime startDate) {
+        return archiveRepository.findMaxDateTime()
+                .map(latest -> startDate == null || !startDate.isAfter(latest))
+                .orElse(false);
+    }
+
+    private int moveChunk(LocalDateTime before) {
+        List<Long> ids = appointmentRepository.findArchivableIds(before, FINAL_STATUSES, PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // Detalles después de la cita (clave foránea) y borrado en orden inverso
+        archiveRepository.copyAppointments(ids, LocalDateTime.now());
+        archiveRepository.copyDetails(ids);
+        archiveRepository.deleteHotDetails(ids);
+        archiveRepository.deleteHotAppointments(ids);
+        return ids.size();
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición en el listado de citas ordenado por (date_time, id).
+ * Se serializa como Base64 URL-safe de {@code "N|dateTime|id"} (siguiente) o {@code "P|dateTime|id"} (anterior).
+ */
+record AppointmentCursor(boolean backward, LocalDateTime dateTime, Long id) {
+
+    static AppointmentCursor next(LocalDateTime dateTime, Long id) {
+        return new AppointmentCursor(false, dateTime, id);
+    }
+
+    static AppointmentCursor previous(LocalDateTime dateTime, Long id) {
+        return new AppointmentCursor(true, dateTime, id);
+    }
+
+    String encode() {
+        String raw = (backward ? "P" : "N") + "|" + dateTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static AppointmentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !(parts[0].equals("N") || parts[0].equals("P"))) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new AppointmentCursor(parts[0].equals("P"), LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor no válido");
+        }
+    }
+}
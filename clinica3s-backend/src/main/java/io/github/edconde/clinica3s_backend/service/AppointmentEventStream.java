@@ -0,0 +1,263 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.event.AppointmentChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Difunde por Server-Sent Events los cambios de citas confirmados. Los eventos se numeran y se guardan
+ * en un búfer circular acotado para que un cliente que se reconecta con Last-Event-ID reciba lo que se
+ * perdió; si su último id ya no está en el búfer (o es de otra instancia o de antes de un reinicio)
+ * recibe un evento {@code reset} y debe recargar.
+ * <p>
+ * Un único hilo de difusión reparte los eventos, las repeticiones y los heartbeats en una cola acotada por
+ * suscriptor, sin bloquearse; cada cola la vacía su propio hilo de envío, de modo que un cliente lento solo
+ * se retrasa a sí mismo y recibe sus eventos en orden. Si su cola se llena se cierra la conexión: el cliente
+ * se reconecta con Last-Event-ID y recupera lo perdido desde el búfer (o recibe {@code reset}).
+ */
+@Component
+@Slf4j
+public class AppointmentEventStream {
+
+    static final String EVENT_NAME = "appointment";
+    static final String RESET_EVENT_NAME = "reset";
+
+    // Prefijo de los ids de evento: distingue los ids de esta ejecución de los de un arranque anterior
+    private final String streamId = Long.toString(System.currentTimeMillis(), 36);
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final StreamedEvent[] buffer;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Como mucho un hilo por suscriptor con envíos pendientes; los bloqueados son los de clientes lentos
+    private final ExecutorService sendExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-events-send");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Protegidos por el monitor de buffer
+    private long lastId;
+
+    public AppointmentEventStream(@Value("${application.appointments.events.buffer-size:1000}") int bufferSize,
+                                  @Value("${application.appointments.events.timeout:30m}") Duration timeout,
+                                  @Value("${application.appointments.events.heartbeat:25s}") Duration heartbeat,
+                                  @Value("${application.appointments.events.subscriber-queue:256}") int queueCapacity) {
+        this.buffer = new StreamedEvent[Math.max(1, bufferSize)];
+        this.timeoutMillis = timeout.toMillis();
+        this.queueCapacity = Math.max(1, queueCapacity);
+        // Comentario periódico para que proxies y balanceadores no cierren la conexión por inactividad
+        executor.scheduleAtFixedRate(this::sendHeartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        StreamedEvent streamed;
+        synchronized (buffer) {
+            streamed = new StreamedEvent(++lastId, event);
+            buffer[(int) (streamed.id() % buffer.length)] = streamed;
+        }
+        executor.execute(() -> subscribers.forEach(subscriber -> subscriber.send(streamed)));
+    }
+
+    /**
+     * Abre un stream de cambios.
+     *
+     * @param dentistId   si no es null, solo se envían las citas de ese dentista
+     * @param lastEventId último id recibido por el cliente (cabecera Last-Event-ID), o null para empezar ahora
+     */
+    public SseEmitter subscribe(Long dentistId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, dentistId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        Long resumeFrom = parseEventId(lastEventId);
+        // En el hilo de difusión: los eventos publicados antes se reenvían desde el búfer y los posteriores
+        // llegan por la difusión normal (el suscriptor descarta los ids ya enviados)
+        executor.execute(() -> {
+            if (resumeFrom != null) {
+                replay(subscriber, resumeFrom);
+            } else {
+                synchronized (buffer) {
+                    subscriber.lastSentId = lastId;
+                }
+            }
+            subscribers.add(subscriber);
+        });
+        return emitter;
+    }
+
+    private void replay(Subscriber subscriber, long resumeFrom) {
+        List<StreamedEvent> missed = new ArrayList<>();
+        boolean complete;
+        synchronized (buffer) {
+            long oldest = Math.max(1, lastId - buffer.length + 1);
+            // Más eventos perdidos de los que caben en la cola: se pide recargar en lugar de desbordarla
+            complete = resumeFrom >= oldest - 1 && resumeFrom <= lastId && lastId - resumeFrom <= queueCapacity;
+            for (long id = Math.max(resumeFrom + 1, oldest); complete && id <= lastId; id++) {
+                missed.add(buffer[(int) (id % buffer.length)]);
+            }
+            if (!complete) {
+                subscriber.lastSentId = lastId;
+            }
+        }
+        if (!complete) {
+            subscriber.sendReset();
+            return;
+        }
+        subscriber.lastSentId = resumeFrom;
+        missed.forEach(subscriber::send);
+    }
+
+    private void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.sendComment();
+        }
+    }
+
+    private String eventId(long id) {
+        return streamId + "-" + id;
+    }
+
+    // Un id de otra ejecución o mal formado se trata como un hueco: el cliente recibe reset y recarga
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        String prefix = streamId + "-";
+        String value = lastEventId.trim();
+        if (!value.startsWith(prefix)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        sendExecutor.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    record StreamedEvent(long id, AppointmentChangedEvent event) {
+    }
+
+    /**
+     * Conexión de un cliente. El hilo de difusión filtra y encola; el envío lo hace {@link #drain()} en
+     * sendExecutor, con una sola ejecución a la vez por suscriptor.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long dentistId;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile boolean completed;
+        // Solo desde el hilo de difusión
+        private long lastSentId;
+
+        private Subscriber(SseEmitter emitter, Long dentistId) {
+            this.emitter = emitter;
+            this.dentistId = dentistId;
+        }
+
+        private void send(StreamedEvent streamed) {
+            if (streamed.id() <= lastSentId) {
+                return;
+            }
+            lastSentId = streamed.id();
+            if (dentistId != null && !dentistId.equals(streamed.event().dentistId())) {
+                return;
+            }
+            emit(SseEmitter.event()
+                    .id(eventId(streamed.id()))
+                    .name(EVENT_NAME)
+                    .data(streamed.event(), MediaType.APPLICATION_JSON));
+        }
+
+        private void sendReset() {
+            emit(SseEmitter.event().id(eventId(lastSentId)).name(RESET_EVENT_NAME).data(""));
+        }
+
+        private void sendComment() {
+            emit(SseEmitter.event().comment("keep-alive"));
+        }
+
+        private void emit(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!pending.offer(event)) {
+                // No da abasto: se cierra (desde su hilo de envío, que puede estar bloqueado) y se reconectará
+                log.debug("Suscriptor de eventos de citas desconectado: cola de {} envíos llena", queueCapacity);
+                close();
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = pending.poll()) != null) {
+                    emitter.send(event);
+                }
+                if (closed && !completed) {
+                    completed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado: se elimina sin afectar al resto
+                completed = true;
+                close();
+                log.debug("Suscriptor de eventos de citas desconectado: {}", e.getMessage());
+            } finally {
+                draining.set(false);
+            }
+            // Lo encolado (o el cierre pedido) entre el último poll y la liberación de draining
+            if (closed ? !completed : !pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+            pending.clear();
+        }
+    }
+}
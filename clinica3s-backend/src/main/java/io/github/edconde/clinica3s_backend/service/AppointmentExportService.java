@@ -0,0 +1,209 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.edconde.clinica3s_backend.entity.*;
+import io.github.edconde.clinica3s_backend.repository.AppointmentSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de citas y sus líneas de detalle (una fila por detalle) leyendo con un cursor de solo avance.
+ * Solo se seleccionan columnas, por lo que el contexto de persistencia no crece y la memoria es constante
+ * independientemente del número de filas exportadas. Si el rango pedido llega a fechas archivadas, las citas
+ * del archivo se leen con un segundo cursor y se intercalan en orden.
+ */
+@org.springframework.stereotype.Service
+@RequiredArgsConstructor
+public class AppointmentExportService {
+
+    private static final String[] COLUMNS = {
+            "appointment_id", "date_time", "status", "total_amount",
+            "patient_id", "patient_name", "dentist_id", "dentist_name",
+            "detail_id", "service_name", "quantity", "price_applied", "payment_date", "paid"
+    };
+
+    // Orden de las filas exportadas: fecha, cita y detalle
+    private static final Comparator<Tuple> ROW_ORDER = Comparator
+            .<Tuple, LocalDateTime>comparing(row -> row.get(1, LocalDateTime.class))
+            .thenComparing(row -> row.get(0, Long.class))
+            .thenComparing(row -> row.get(8, Long.class), Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final AppointmentArchiveService appointmentArchiveService;
+
+    // En MySQL el driver solo usa un cursor de servidor con Integer.MIN_VALUE
+    @Value("${application.reports.export.fetch-size:500}")
+    private int fetchSize;
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Escribe en {@code output} las citas que cumplen los mismos filtros que el listado de citas.
+     * El stream de salida no se cierra; con {@code gzip} se finaliza el bloque comprimido.
+     */
+    public void export(Long patientId, Long dentistId, AppointmentStatus appointmentStatus,
+                       LocalDateTime startDate, LocalDateTime endDate,
+                       Format format, boolean gzip, OutputStream output) throws IOException {
+        Specification<Appointment> spec = AppointmentSpecifications.buildSpecification(
+                patientId, dentistId, appointmentStatus, startDate, endDate);
+        Specification<ArchivedAppointment> archiveSpec = appointmentArchiveService.reachesArchive(startDate)
+                ? AppointmentSpecifications.buildArchiveSpecification(patientId, dentistId, appointmentStatus, startDate, endDate)
+                : null;
+        OutputStream target = gzip ? new GZIPOutputStream(output, 64 * 1024) : output;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+
+        // PostgreSQL solo respeta el fetch size dentro de una transacción (autocommit desactivado)
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Tuple> rows = createQuery(Appointment.class, spec);
+                 Stream<Tuple> archivedRows = archiveSpec != null ? createQuery(ArchivedAppointment.class, archiveSpec) : Stream.empty()) {
+                if (format == Format.CSV) {
+                    writeLine(writer, String.join(",", COLUMNS));
+                }
+                Iterator<Tuple> merged = merge(rows.iterator(), archivedRows.iterator());
+                merged.forEachRemaining(row -> writeLine(writer, format == Format.CSV ? toCsv(row) : toJson(row)));
+            }
+        });
+
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipOutput) {
+            gzipOutput.finish();
+        }
+    }
+
+    // Válido para Appointment y ArchivedAppointment, que comparten los nombres de atributo
+    private <T> Stream<Tuple> createQuery(Class<T> entity, Specification<T> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entity);
+        Join<T, ?> patient = root.join("patient");
+        Join<T, ?> dentist = root.join("dentist");
+        Join<?, ?> user = dentist.join("user", JoinType.LEFT);
+        Join<T, ?> detail = root.join("details", JoinType.LEFT);
+        Join<?, ?> service = detail.join("service", JoinType.LEFT);
+
+        query.multiselect(
+                root.get("id"), root.get("dateTime"), root.get("status"), root.get("totalAmount"),
+                patient.get("id"), patient.get("name"), dentist.get("id"), user.get("name"),
+                detail.get("id"), service.get("name"), detail.get("quantity"), detail.get("priceApplied"),
+                detail.get("paymentDate"));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("dateTime")), cb.asc(root.get("id")), cb.asc(detail.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    // Intercala dos flujos ya ordenados por ROW_ORDER
+    private static Iterator<Tuple> merge(Iterator<Tuple> left, Iterator<Tuple> right) {
+        return new Iterator<>() {
+            private Tuple nextLeft = left.hasNext() ? left.next() : null;
+            private Tuple nextRight = right.hasNext() ? right.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null;
+            }
+
+            @Override
+            public Tuple next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Tuple row;
+                if (nextRight == null || (nextLeft != null && ROW_ORDER.compare(nextLeft, nextRight) <= 0)) {
+                    row = nextLeft;
+                    nextLeft = left.hasNext() ? left.next() : null;
+                } else {
+                    row = nextRight;
+                    nextRight = right.hasNext() ? right.next() : null;
+                }
+                return row;
+            }
+        };
+    }
+
+    private String toCsv(Tuple row) {
+        StringBuilder line = new StringBuilder(160);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = value(row, i);
+            if (value != null) {
+                appendCsv(line, value.toString());
+            }
+        }
+        return line.toString();
+    }
+
+    private String toJson(Tuple row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            values.put(COLUMNS[i], value(row, i));
+        }
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // La última columna (paid) se deriva de payment_date; sin detalle queda vacía
+    private static Object value(Tuple row, int index) {
+        if (index == COLUMNS.length - 1) {
+            return row.get(8) != null ? row.get(12) != null : null;
+        }
+        Object value = row.get(index);
+        return value instanceof LocalDateTime dateTime ? dateTime.toString() : value;
+    }
+
+    private static void appendCsv(StringBuilder line, String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void writeLine(Writer writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.entity.*;
+import io.github.edconde.clinica3s_backend.repository.AppointmentArchiveRepository;
+import io.github.edconde.clinica3s_backend.repository.AppointmentListEntryRepository;
+import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import io.github.edconde.clinica3s_backend.repository.SliceQueries;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de lectura del listado de citas (tabla appointment_list_view). Las escrituras de citas, pacientes
+ * y dentistas lo actualizan en su misma transacción, de modo que el listado nunca ve un estado que no se
+ * haya confirmado en las tablas originales; los filtros, la ordenación y la paginación de /api/appointments
+ * se resuelven sobre esta única tabla indexada, sin joins ni carga de detalles.
+ * <p>
+ * Si la tabla está vacía al arrancar (primer despliegue o datos cargados fuera de la aplicación), se
+ * regenera desde las citas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AppointmentListView {
+
+    static final int SUMMARY_MAX_LENGTH = 500;
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    // Campos de ordenación que admitía el listado sobre la entidad y su columna en el modelo de lectura
+    private static final Map<String, String> SORT_ALIASES = Map.of(
+            "patient.id", "patientId",
+            "patient.name", "patientName",
+            "dentist.id", "dentistId",
+            "dentist.name", "dentistName",
+            "dentist.user.name", "dentistName");
+
+    private final AppointmentListEntryRepository entryRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository appointmentArchiveRepository;
+    private final SliceQueries sliceQueries;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Alta de la fila de una cita recién insertada (persist directo: el id viene de la cita y no hay que comprobar si existe)
+    public void insert(Appointment appointment) {
+        entityManager.persist(toEntry(appointment));
+    }
+
+    public void insertAll(Collection<Appointment> appointments) {
+        appointments.forEach(this::insert);
+    }
+
+    // Vuelve a escribir la fila con el estado actual de la cita, ya guardada (y con su versión incrementada)
+    public void refresh(Appointment appointment) {
+        entityManager.merge(toEntry(appointment));
+    }
+
+    /**
+     * Reproduce sobre el listado los UPDATE masivos de estado y pago de {@link AppointmentService}.
+     */
+    public void updateInBulk(Collection<Long> ids, AppointmentStatus status, boolean pay) {
+        if (pay) {
+            entryRepository.markPaidByIds(ids);
+        }
+        entryRepository.updateStatusByIds(ids, status);
+    }
+
+    // Cambios de datos del paciente: un UPDATE sobre todas sus filas
+    public void updatePatient(Patient patient) {
+        entryRepository.updatePatient(patient.getId(), patient.getName(), patient.getPhone(), patient.getEmail(),
+                patient.getVersion());
+    }
+
+    public void updateDentist(Dentist dentist) {
+        entryRepository.updateDentist(dentist.getId(),
+                dentist.getUser() != null ? dentist.getUser().getName() : null,
+                dentist.getLicenseNumber());
+    }
+
+    /**
+     * Cambio de nombre de un servicio: vuelve a escribir, por bloques, las filas de las citas (también las
+     * archivadas) que lo incluyen, ya que el resumen de servicios lleva el nombre. El servicio debe estar
+     * guardado en la transacción actual.
+     */
+    public void updateService(Long serviceId) {
+        List<Long> ids = appointmentRepository.findIdsByServiceId(serviceId);
+        for (int from = 0; from < ids.size(); from += REBUILD_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + REBUILD_CHUNK_SIZE, ids.size()));
+            appointmentRepository.findForListView(chunk).forEach(appointment -> entityManager.merge(toEntry(appointment)));
+            flushChunk(chunk);
+        }
+        List<Long> archivedIds = appointmentArchiveRepository.findIdsByServiceId(serviceId);
+        for (int from = 0; from < archivedIds.size(); from += REBUILD_CHUNK_SIZE) {
+            List<Long> chunk = archivedIds.subList(from, Math.min(from + REBUILD_CHUNK_SIZE, archivedIds.size()));
+            appointmentArchiveRepository.findForListView(chunk).forEach(appointment -> entityManager.merge(toEntry(appointment)));
+            flushChunk(chunk);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Page<AppointmentResponse> find(Specification<AppointmentListEntry> spec, Pageable pageable) {
+        return entryRepository.findAll(spec, translate(pageable)).map(AppointmentListView::toResponse);
+    }
+
+    // Sin count(*), para pagination=slice
+    @Transactional(readOnly = true)
+    public Slice<AppointmentResponse> findSlice(Specification<AppointmentListEntry> spec, Pageable pageable) {
+        return sliceQueries.findSlice(AppointmentListEntry.class, spec, translate(pageable)).map(AppointmentListView::toResponse);
+    }
+
+    @Transactional(readOnly = true)
+    public long count(Specification<AppointmentListEntry> spec) {
+        return entryRepository.count(spec);
+    }
+
+    // Primeras filas en el orden indicado, para la paginación por cursor
+    @Transactional(readOnly = true)
+    public List<AppointmentResponse> findFirst(Specification<AppointmentListEntry> spec, Sort sort, int limit) {
+        return entryRepository.findBy(spec, query -> query.sortBy(sort).limit(limit).all())
+                .stream()
+                .map(AppointmentListView::toResponse)
+                .toList();
+    }
+
+    /**
+     * Regenera el listado completo desde las citas y el archivo, por bloques de ids para acotar la memoria.
+     */
+    @Transactional
+    public int rebuild() {
+        entryRepository.deleteAllRows();
+        int rows = 0;
+        Long afterId = 0L;
+        List<Long> ids;
+        while (!(ids = appointmentRepository.findIdsAfter(afterId, PageRequest.of(0, REBUILD_CHUNK_SIZE))).isEmpty()) {
+            for (Appointment appointment : appointmentRepository.findForListView(ids)) {
+                entityManager.persist(toEntry(appointment));
+            }
+            rows += flushChunk(ids);
+            afterId = ids.get(ids.size() - 1);
+        }
+        afterId = 0L;
+        while (!(ids = appointmentArchiveRepository.findIdsAfter(afterId, PageRequest.of(0, REBUILD_CHUNK_SIZE))).isEmpty()) {
+            for (ArchivedAppointment appointment : appointmentArchiveRepository.findForListView(ids)) {
+                entityManager.persist(toEntry(appointment));
+            }
+            rows += flushChunk(ids);
+            afterId = ids.get(ids.size() - 1);
+        }
+        log.info("Listado de citas regenerado ({} filas)", rows);
+        return rows;
+    }
+
+    private int flushChunk(List<Long> ids) {
+        entityManager.flush();
+        entityManager.clear();
+        return ids.size();
+    }
+
+    // Antes que los componentes que leen el listado al arrancar (precarga de agendas)
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (entryRepository.count() == 0 && appointmentRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    // Los detalles deben estar cargados (o accesibles en la transacción actual)
+    static AppointmentListEntry toEntry(Appointment appointment) {
+        Patient patient = appointment.getPatient();
+        Dentist dentist = appointment.getDentist();
+        return AppointmentListEntry.builder()
+                .id(appointment.getId())
+                .dateTime(appointment.getDateTime())
+                .durationMinutes(appointment.getDurationMinutes())
+                .status(appointment.getStatus())
+                .totalAmount(appointment.getTotalAmount())
+                .paid(isPaid(appointment.getDetails()))
+                .version(appointment.getVersion())
+                .patientId(patient.getId())
+                .patientName(patient.getName())
+                .patientPhone(patient.getPhone())
+                .patientEmail(patient.getEmail())
+                .patientVersion(patient.getVersion())
+                .dentistId(dentist.getId())
+                .dentistName(dentist.getUser() != null ? dentist.getUser().getName() : null)
+                .dentistLicense(dentist.getLicenseNumber())
+                .servicesSummary(summarize(appointment.getDetails()))
+                .build();
+    }
+
+    // Las citas archivadas están pagadas por completo
+    static AppointmentListEntry toEntry(ArchivedAppointment appointment) {
+        Patient patient = appointment.getPatient();
+        Dentist dentist = appointment.getDentist();
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        appointment.getDetails().forEach(detail -> quantities.merge(detail.getService().getName(), detail.getQuantity(), Integer::sum));
+        return AppointmentListEntry.builder()
+                .id(appointment.getId())
+                .dateTime(appointment.getDateTime())
+                .durationMinutes(appointment.getDurationMinutes())
+                .status(appointment.getStatus())
+                .totalAmount(appointment.getTotalAmount())
+                .paid(true)
+                .version(appointment.getVersion())
+                .patientId(patient.getId())
+                .patientName(patient.getName())
+                .patientPhone(patient.getPhone())
+                .patientEmail(patient.getEmail())
+                .patientVersion(patient.getVersion())
+                .dentistId(dentist.getId())
+                .dentistName(dentist.getUser() != null ? dentist.getUser().getName() : null)
+                .dentistLicense(dentist.getLicenseNumber())
+                .servicesSummary(summarize(quantities))
+                .build();
+    }
+
+    static boolean isPaid(Collection<AppointmentDetail> details) {
+        return details.stream().allMatch(detail -> detail.getPaymentDate() != null);
+    }
+
+    /**
+     * Resumen de servicios en orden de alta, con la cantidad si es mayor que 1: "Limpieza x2, Empaste".
+     */
+    static String summarize(Collection<AppointmentDetail> details) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (AppointmentDetail detail : details) {
+            quantities.merge(detail.getService().getName(), detail.getQuantity() != null ? detail.getQuantity() : 1, Integer::sum);
+        }
+        return summarize(quantities);
+    }
+
+    // Mismo resumen a partir de los detalles ya mapeados de la respuesta (lectura por tuplas de la cita)
+    static String summarizeDetails(Collection<AppointmentResponse.DetailInfo> details) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (AppointmentResponse.DetailInfo detail : details) {
+            quantities.merge(detail.getServiceName(), detail.getQuantity() != null ? detail.getQuantity() : 1, Integer::sum);
+        }
+        return summarize(quantities);
+    }
+
+    private static String summarize(Map<String, Integer> quantities) {
+        StringBuilder summary = new StringBuilder();
+        quantities.forEach((name, quantity) -> {
+            if (!summary.isEmpty()) {
+                summary.append(", ");
+            }
+            summary.append(name);
+            if (quantity > 1) {
+                summary.append(" x").append(quantity);
+            }
+        });
+        if (summary.length() > SUMMARY_MAX_LENGTH) {
+            summary.setLength(SUMMARY_MAX_LENGTH - 3);
+            summary.append("...");
+        }
+        return summary.toString();
+    }
+
+    private static Pageable translate(Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+        Sort sort = Sort.by(pageable.getSort().stream()
+                .map(order -> order.withProperty(SORT_ALIASES.getOrDefault(order.getProperty(), order.getProperty())))
+                .toList());
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
+
+    private static AppointmentResponse toResponse(AppointmentListEntry entry) {
+        return AppointmentResponse.builder()
+                .id(entry.getId())
+                .dateTime(entry.getDateTime())
+                .durationMinutes(entry.getDurationMinutes())
+                .status(entry.getStatus())
+                .totalAmount(entry.getTotalAmount())
+                .version(entry.getVersion())
+                .paid(entry.getPaid())
+                .servicesSummary(entry.getServicesSummary())
+                .patient(AppointmentResponse.PatientInfo.builder()
+                        .id(entry.getPatientId())
+                        .version(entry.getPatientVersion())
+                        .name(entry.getPatientName())
+                        .phone(entry.getPatientPhone())
+                        .email(entry.getPatientEmail())
+                        .build())
+                .dentist(AppointmentResponse.DentistInfo.builder()
+                        .id(entry.getDentistId())
+                        .name(entry.getDentistName())
+                        .licenseNumber(entry.getDentistLicense())
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Restricción de exclusión appointment_no_overlap de PostgreSQL: un dentista no puede tener dos citas
+ * solapadas (salvo las no presentadas). Es la que protege el caso de varias instancias, ya que cada una
+ * solo comprueba su propio {@link DentistScheduleIndex}.
+ * <p>
+ * Se crea aquí y no en schema-postgresql.sql porque el bloque DO necesita ';' dentro del cuerpo y los
+ * scripts de inicialización se trocean por ';'. Si no se puede crear (citas solapadas previas o falta de
+ * permisos para la extensión btree_gist), el arranque falla en lugar de seguir sin la restricción.
+ */
+@Component
+@Slf4j
+public class AppointmentOverlapConstraint {
+
+    static final String CONSTRAINT_NAME = "appointment_no_overlap";
+
+    private static final String CREATE_IF_MISSING = """
+            DO $$
+            BEGIN
+                CREATE EXTENSION IF NOT EXISTS btree_gist;
+                IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'appointment_no_overlap') THEN
+                    ALTER TABLE appointment ADD CONSTRAINT appointment_no_overlap EXCLUDE USING gist (
+                        dentist_id WITH =,
+                        tsrange(date_time, date_time + duration_minutes * INTERVAL '1 minute') WITH &&
+                    ) WHERE (status <> 'NO_SHOW');
+                END IF;
+            END
+            $$""";
+
+    private final boolean postgres;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AppointmentOverlapConstraint(@Value("${spring.jpa.database-platform:}") String databasePlatform) {
+        this.postgres = databasePlatform.contains("PostgreSQL");
+    }
+
+    // Antes de sembrar el índice de agenda y de abrir la aplicación al resto de componentes
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void ensureExists() {
+        if (!postgres) {
+            return;
+        }
+        try {
+            entityManager.createNativeQuery(CREATE_IF_MISSING).executeUpdate();
+        } catch (RuntimeException e) {
+            log.error("No se pudo crear la restricción {}: revise si hay citas solapadas o si el usuario puede crear la extensión btree_gist",
+                    CONSTRAINT_NAME, e);
+            throw new IllegalStateException("Falta la restricción " + CONSTRAINT_NAME + " en la tabla appointment", e);
+        }
+        log.info("Restricción {} comprobada", CONSTRAINT_NAME);
+    }
+}
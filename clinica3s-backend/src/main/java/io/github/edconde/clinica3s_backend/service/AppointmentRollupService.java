@@ -0,0 +1,186 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.*;
+import io.github.edconde.clinica3s_backend.repository.AppointmentDailyRollupRepository;
+import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mantiene la tabla appointment_daily_rollup. Cada cita aporta una {@link Contribution} a la fila
+ * (día, dentista, estado) que le corresponde; al modificar una cita se resta su aportación anterior
+ * y se suma la nueva dentro de la misma transacción.
+ * <p>
+ * El coste se calcula con el coste estándar vigente de cada servicio, igual que al restar la aportación
+ * anterior de una cita; por eso, cuando cambia el coste de un servicio, {@link ServiceService} regenera los
+ * agregados y la aportación que se resta siempre coincide con la que se sumó.
+ * <p>
+ * Cada fila se actualiza con un upsert (ON CONFLICT en PostgreSQL, MERGE en H2), de modo que las citas
+ * concurrentes que crean la misma fila suman sobre ella en lugar de fallar por la clave primaria.
+ */
+@Service
+@Slf4j
+public class AppointmentRollupService {
+
+    private final AppointmentDailyRollupRepository rollupRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final boolean postgres;
+
+    public AppointmentRollupService(AppointmentDailyRollupRepository rollupRepository,
+                                    AppointmentRepository appointmentRepository,
+                                    @Value("${spring.jpa.database-platform:}") String databasePlatform) {
+        this.rollupRepository = rollupRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.postgres = databasePlatform.contains("PostgreSQL");
+    }
+
+    @Transactional
+    public void add(Contribution contribution) {
+        apply(contribution, 1);
+    }
+
+    /**
+     * Suma varias aportaciones agrupándolas antes por fila, de modo que cada (día, dentista, estado)
+     * afectado se actualiza una sola vez.
+     */
+    @Transactional
+    public void addAll(Collection<Contribution> contributions) {
+        Map<AppointmentDailyRollupId, Delta> deltas = new LinkedHashMap<>();
+        collect(deltas, contributions, 1);
+        deltas.forEach(this::apply);
+    }
+
+    @Transactional
+    public void replace(Contribution before, Contribution after) {
+        apply(before, -1);
+        apply(after, 1);
+    }
+
+    /**
+     * Versión masiva de {@link #replace}: resta las aportaciones anteriores y suma las nuevas agrupando por
+     * fila; las filas cuyo saldo neto es cero no se tocan.
+     */
+    @Transactional
+    public void replaceAll(Collection<Contribution> before, Collection<Contribution> after) {
+        Map<AppointmentDailyRollupId, Delta> deltas = new LinkedHashMap<>();
+        collect(deltas, before, -1);
+        collect(deltas, after, 1);
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                apply(key, delta);
+            }
+        });
+    }
+
+    /**
+     * Regenera todos los agregados a partir de las tablas appointment y appointment_detail.
+     */
+    @Transactional
+    public int rebuild() {
+        rollupRepository.deleteAllRows();
+        int rows = rollupRepository.rebuildFromAppointments();
+        log.info("Agregados diarios de citas regenerados ({} filas)", rows);
+        return rows;
+    }
+
+    // Se ejecuta tras DataInitializer: si hay citas pero no agregados (primer arranque), se regeneran
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (rollupRepository.count() == 0 && appointmentRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    private static void collect(Map<AppointmentDailyRollupId, Delta> deltas, Collection<Contribution> contributions, int sign) {
+        for (Contribution contribution : contributions) {
+            deltas.computeIfAbsent(contribution.key(), key -> new Delta()).add(contribution, sign);
+        }
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        Delta delta = new Delta();
+        delta.add(contribution, sign);
+        apply(contribution.key(), delta);
+    }
+
+    private void apply(AppointmentDailyRollupId key, Delta delta) {
+        if (postgres) {
+            rollupRepository.upsertPostgres(key.getRollupDay(), key.getDentistId(), key.getStatus().name(),
+                    delta.appointments, delta.unpaid, delta.invoiced, delta.pending, delta.cost);
+        } else {
+            rollupRepository.mergeH2(key.getRollupDay(), key.getDentistId(), key.getStatus().name(),
+                    delta.appointments, delta.unpaid, delta.invoiced, delta.pending, delta.cost);
+        }
+    }
+
+    // Suma de aportaciones que caen en la misma fila de agregados
+    private static final class Delta {
+        private long appointments;
+        private long unpaid;
+        private double invoiced;
+        private double pending;
+        private double cost;
+
+        private void add(Contribution contribution, int sign) {
+            appointments += sign;
+            unpaid += sign * contribution.unpaid();
+            invoiced += sign * contribution.invoiced();
+            pending += sign * contribution.pending();
+            cost += sign * contribution.cost();
+        }
+
+        private boolean isZero() {
+            return appointments == 0 && unpaid == 0 && invoiced == 0.0 && pending == 0.0 && cost == 0.0;
+        }
+    }
+
+    /**
+     * Aportación de una única cita a su fila de agregados.
+     */
+    public record Contribution(LocalDate day,
+                               Long dentistId,
+                               AppointmentStatus status,
+                               long unpaid,
+                               double invoiced,
+                               double pending,
+                               double cost) {
+
+        AppointmentDailyRollupId key() {
+            return new AppointmentDailyRollupId(day, dentistId, status);
+        }
+
+        public static Contribution of(Appointment appointment) {
+            long unpaid = 0;
+            double invoiced = 0.0;
+            double pending = 0.0;
+            double cost = 0.0;
+
+            for (AppointmentDetail detail : appointment.getDetails()) {
+                double amount = detail.getPriceApplied() * detail.getQuantity();
+                cost += detail.getService().getStandardCost() * detail.getQuantity();
+                if (detail.getPaymentDate() != null) {
+                    invoiced += amount;
+                } else {
+                    pending += amount;
+                    unpaid = 1;
+                }
+            }
+
+            return new Contribution(
+                    appointment.getDateTime().toLocalDate(),
+                    appointment.getDentist().getId(),
+                    appointment.getStatus(),
+                    unpaid, invoiced, pending, cost);
+        }
+    }
+}
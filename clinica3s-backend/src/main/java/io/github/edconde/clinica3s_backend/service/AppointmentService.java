@@ -2,26 +2,51 @@ package io.github.edconde.clinica3s_backend.service;
 
 import io.github.edconde.clinica3s_backend.dto.AppointmentRequest;
 import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.dto.BulkAppointmentUpdateRequest;
+import io.github.edconde.clinica3s_backend.dto.BulkOperationResponse;
+import io.github.edconde.clinica3s_backend.dto.CursorPage;
 import io.github.edconde.clinica3s_backend.entity.*;
+import io.github.edconde.clinica3s_backend.event.AppointmentChangedEvent;
 import io.github.edconde.clinica3s_backend.repository.*;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AppointmentService {
 
+    private static final int FETCH_DETAILS_BATCH_SIZE = 500;
+    private static final int MAX_BULK_ITEMS = 1000;
+
     private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository appointmentArchiveRepository;
     private final PatientRepository patientRepository;
     private final DentistRepository dentistRepository;
-    private final ServiceRepository serviceRepository;
+    private final ServiceCatalog serviceCatalog;
+    private final DentistScheduleIndex scheduleIndex;
+    private final AppointmentRollupService appointmentRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final OptimisticLockRetrier optimisticLockRetrier;
+    private final AppointmentListView appointmentListView;
+    private final RowCountEstimator rowCountEstimator;
 
     @Transactional
     public AppointmentResponse createAppointment(AppointmentRequest request) {
@@ -31,39 +56,91 @@ public class AppointmentService {
         Dentist dentist = dentistRepository.findById(request.getDentistId())
                 .orElseThrow(() -> new RuntimeException("Dentista no encontrado"));
 
-        Appointment appointment = Appointment.builder()
-                .dateTime(request.getDateTime())
-                .status(AppointmentStatus.PENDING)
-                .patient(patient)
-                .dentist(dentist)
-                .totalAmount(0.0)
-                .build();
+        // Precios y referencias de servicio desde el catálogo en memoria
+        Appointment appointment = buildAppointment(request, patient, dentist, serviceId -> serviceCatalog
+                .findById(serviceId)
+                .orElseThrow(() -> new RuntimeException("Servicio no encontrado: " + serviceId)));
 
-        double totalAmount = 0.0;
-
-        for (AppointmentRequest.ServiceDetailRequest serviceReq : request.getServices()) {
-            io.github.edconde.clinica3s_backend.entity.Service service = serviceRepository
-                    .findById(serviceReq.getServiceId())
-                    .orElseThrow(() -> new RuntimeException("Servicio no encontrado: " + serviceReq.getServiceId()));
+        // El hueco se reserva en memoria antes de insertar; se libera solo si la transacción no se confirma
+        var reservation = scheduleIndex.reserve(dentist.getId(), null, appointment.getDateTime(), appointment.getDurationMinutes());
+        appointment = saveAndFlush(appointment);
+        scheduleIndex.bind(reservation, appointment.getId());
+        appointmentRollupService.add(AppointmentRollupService.Contribution.of(appointment));
+        appointmentListView.insert(appointment);
+        eventPublisher.publishEvent(AppointmentChangedEvent.of(AppointmentChangedEvent.Type.CREATED, appointment));
 
-            int quantity = serviceReq.getQuantity() != null ? serviceReq.getQuantity() : 1;
+        return mapToResponse(appointment);
+    }
 
-            AppointmentDetail detail = AppointmentDetail.builder()
-                    .service(service)
-                    .quantity(quantity)
-                    .priceApplied(service.getListPrice())
-                    .build();
+    /**
+     * Alta masiva de citas. Pacientes y dentistas se validan con un findAllById por tipo y los servicios con
+     * el catálogo en memoria; las entradas inválidas se informan en su resultado y el resto se inserta en lotes JDBC.
+     */
+    @Transactional
+    public BulkOperationResponse createAppointments(List<AppointmentRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La lista de citas está vacía");
+        }
+        if (requests.size() > MAX_BULK_ITEMS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "No se pueden crear más de " + MAX_BULK_ITEMS + " citas por petición");
+        }
 
-            appointment.addDetail(detail);
-            totalAmount += service.getListPrice() * quantity;
+        Map<Long, Patient> patients = byId(patientRepository.findAllById(collectIds(requests, AppointmentRequest::getPatientId)),
+                Patient::getId);
+        Map<Long, Dentist> dentists = byId(dentistRepository.findAllById(collectIds(requests, AppointmentRequest::getDentistId)),
+                Dentist::getId);
+
+        BulkOperationResponse.ItemResult[] results = new BulkOperationResponse.ItemResult[requests.size()];
+        List<Appointment> appointments = new ArrayList<>();
+        List<DentistScheduleIndex.Reservation> reservations = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        for (int index = 0; index < requests.size(); index++) {
+            AppointmentRequest request = requests.get(index);
+            String error = validateBulkItem(request, patients, dentists);
+            if (error != null) {
+                results[index] = BulkOperationResponse.ItemResult.builder().index(index).success(false).error(error).build();
+                continue;
+            }
+            Appointment appointment = buildAppointment(request,
+                    patients.get(request.getPatientId()),
+                    dentists.get(request.getDentistId()),
+                    serviceId -> serviceCatalog.findById(serviceId).orElseThrow());
+            try {
+                // También detecta solapes entre citas de la misma petición
+                reservations.add(scheduleIndex.reserve(request.getDentistId(), null,
+                        appointment.getDateTime(), appointment.getDurationMinutes()));
+            } catch (ResponseStatusException e) {
+                results[index] = BulkOperationResponse.ItemResult.builder().index(index).success(false).error(e.getReason()).build();
+                continue;
+            }
+            appointments.add(appointment);
+            indexes.add(index);
         }
 
-        appointment.setTotalAmount(totalAmount);
-        appointment = appointmentRepository.save(appointment);
+        // saveAll + flush: con ids de secuencia Hibernate agrupa los INSERT de citas y detalles en lotes
+        List<Appointment> saved = appointmentRepository.saveAll(appointments);
+        flush();
+
+        appointmentRollupService.addAll(saved.stream().map(AppointmentRollupService.Contribution::of).toList());
+        appointmentListView.insertAll(saved);
+        for (int i = 0; i < saved.size(); i++) {
+            Appointment appointment = saved.get(i);
+            scheduleIndex.bind(reservations.get(i), appointment.getId());
+            eventPublisher.publishEvent(AppointmentChangedEvent.of(AppointmentChangedEvent.Type.CREATED, appointment));
+            int index = indexes.get(i);
+            results[index] = BulkOperationResponse.ItemResult.builder().index(index).id(appointment.getId()).success(true).build();
+        }
 
-        return mapToResponse(appointment);
+        return BulkOperationResponse.builder()
+                .succeeded(saved.size())
+                .failed(requests.size() - saved.size())
+                .results(Arrays.asList(results))
+                .build();
     }
 
+    @Transactional(readOnly = true)
     public List<AppointmentResponse> findByUserRole(AppUser user) {
         List<Appointment> appointments;
 
@@ -74,12 +151,14 @@ public class AppointmentService {
         } else {
             appointments = appointmentRepository.findAll();
         }
+        fetchDetails(appointments);
 
         return appointments.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public Page<AppointmentResponse> findByUserRolePaged(AppUser user, Pageable pageable) {
         Page<Appointment> appointments;
 
@@ -90,20 +169,40 @@ public class AppointmentService {
         } else {
             appointments = appointmentRepository.findAll(pageable);
         }
+        fetchDetails(appointments.getContent());
 
         return appointments.map(this::mapToResponse);
     }
 
+    @Transactional(readOnly = true)
     public List<AppointmentResponse> findAll() {
-        return appointmentRepository.findAll().stream()
+        List<Appointment> appointments = appointmentRepository.findAll();
+        fetchDetails(appointments);
+        return appointments.stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    // Si la cita ya no está en appointment, se busca en el archivo
+    @Transactional(readOnly = true)
     public AppointmentResponse findById(Long id) {
-        Appointment appointment = appointmentRepository.findById(id)
+        AppointmentResponse response = appointmentRepository.findResponseById(id)
+                .or(() -> appointmentRepository.findArchivedResponseById(id))
+                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+        // El resumen de servicios sigue la misma regla que mapToResponse y el listado
+        response.setServicesSummary(AppointmentListView.summarizeDetails(response.getDetails()));
+        return response;
+    }
+
+    /**
+     * Versiones de la cita y de su paciente, que identifican su representación (ETag), con una consulta
+     * que no carga la cita.
+     */
+    @Transactional(readOnly = true)
+    public AppointmentRepository.VersionStamp findVersionStamp(Long id) {
+        return appointmentRepository.findVersionStampById(id)
+                .or(() -> appointmentArchiveRepository.findVersionStampById(id))
                 .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
-        return mapToResponse(appointment);
     }
 
     public Long getDentistIdForUser(AppUser user) {
@@ -112,6 +211,7 @@ public class AppointmentService {
         return dentist.getId();
     }
 
+    @Transactional(readOnly = true)
     public Page<AppointmentResponse> findWithFilters(
             Long patientId,
             Long dentistId,
@@ -120,47 +220,446 @@ public class AppointmentService {
             LocalDateTime endDate,
             Pageable pageable) {
 
-        var spec = AppointmentSpecifications.buildSpecification(patientId, dentistId, status, startDate, endDate);
-        return appointmentRepository.findAll(spec, pageable).map(this::mapToResponse);
+        // Sobre el modelo de lectura desnormalizado: una consulta sin joins para la página y otra para el total
+        var spec = AppointmentListSpecifications.buildSpecification(patientId, dentistId, status, startDate, endDate);
+        return appointmentListView.find(spec, pageable);
+    }
+
+    // Mismos filtros sin count(*), para pagination=slice
+    @Transactional(readOnly = true)
+    public Slice<AppointmentResponse> findSliceWithFilters(
+            Long patientId,
+            Long dentistId,
+            AppointmentStatus status,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Pageable pageable) {
+
+        var spec = AppointmentListSpecifications.buildSpecification(patientId, dentistId, status, startDate, endDate);
+        return appointmentListView.findSlice(spec, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public long estimateCount(Long patientId, Long dentistId, AppointmentStatus status,
+                              LocalDateTime startDate, LocalDateTime endDate) {
+        var spec = AppointmentListSpecifications.buildSpecification(patientId, dentistId, status, startDate, endDate);
+        return rowCountEstimator.estimate("appointment_list_view",
+                RowCountEstimator.filterKey(patientId, dentistId, status, startDate, endDate),
+                () -> appointmentListView.count(spec));
+    }
+
+    /**
+     * Listado por cursor ordenado por (dateTime, id). Se pide un elemento de más para saber si hay
+     * otra página en la dirección recorrida, sin ejecutar count(*) ni desplazamientos OFFSET.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<AppointmentResponse> findWithFiltersByCursor(
+            Long patientId,
+            Long dentistId,
+            AppointmentStatus status,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String cursor,
+            int size) {
+
+        AppointmentCursor position = cursor != null && !cursor.isBlank() ? AppointmentCursor.decode(cursor) : null;
+        boolean backward = position != null && position.backward();
+
+        var spec = AppointmentListSpecifications.buildSpecification(patientId, dentistId, status, startDate, endDate);
+        Sort sort = Sort.by(Sort.Direction.ASC, "dateTime", "id");
+        if (position != null) {
+            spec = spec.and(backward
+                    ? AppointmentListSpecifications.keysetBefore(position.dateTime(), position.id())
+                    : AppointmentListSpecifications.keysetAfter(position.dateTime(), position.id()));
+        }
+        if (backward) {
+            sort = Sort.by(Sort.Direction.DESC, "dateTime", "id");
+        }
+
+        List<AppointmentResponse> rows = new ArrayList<>(appointmentListView.findFirst(spec, sort, size + 1));
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows.remove(size);
+        }
+        if (backward) {
+            Collections.reverse(rows);
+        }
+
+        // Hacia delante, hay anterior si se partió de un cursor; hacia atrás, siempre hay siguiente
+        boolean hasNext = backward ? position != null : hasMore;
+        boolean hasPrevious = backward ? hasMore : position != null;
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!rows.isEmpty()) {
+            AppointmentResponse first = rows.get(0);
+            AppointmentResponse last = rows.get(rows.size() - 1);
+            nextCursor = hasNext ? AppointmentCursor.next(last.getDateTime(), last.getId()).encode() : null;
+            prevCursor = hasPrevious ? AppointmentCursor.previous(first.getDateTime(), first.getId()).encode() : null;
+        } else if (position != null) {
+            // Página vacía: se permite volver desde la posición del cursor recibido
+            nextCursor = backward ? AppointmentCursor.next(position.dateTime(), position.id()).encode() : null;
+            prevCursor = backward ? null : AppointmentCursor.previous(position.dateTime(), position.id()).encode();
+        }
+
+        return CursorPage.<AppointmentResponse>builder()
+                .content(rows)
+                .size(size)
+                .nextCursor(nextCursor)
+                .prevCursor(prevCursor)
+                .hasNext(nextCursor != null)
+                .hasPrevious(prevCursor != null)
+                .build();
     }
 
-    @Transactional
     public AppointmentResponse payAppointment(Long id) {
-        Appointment appointment = appointmentRepository.findById(id)
+        return payAppointment(id, null);
+    }
+
+    /**
+     * Registra el pago de la cita. Sin {@code expectedVersion} la operación es idempotente y se reintenta si
+     * otra transacción modifica la cita a la vez; con ella (If-Match) responde 412 si la versión no coincide
+     * y 409 si la cita cambia durante la escritura.
+     */
+    public AppointmentResponse payAppointment(Long id, Long expectedVersion) {
+        return optimisticLockRetrier.execute(expectedVersion == null, () -> doPayAppointment(id, expectedVersion));
+    }
+
+    private AppointmentResponse doPayAppointment(Long id, Long expectedVersion) {
+        Appointment appointment = appointmentRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+        optimisticLockRetrier.checkVersion(expectedVersion, appointment.getVersion());
+        var before = AppointmentRollupService.Contribution.of(appointment);
+        AppointmentStatus previousStatus = appointment.getStatus();
 
         LocalDateTime now = LocalDateTime.now();
+        boolean paidAny = false;
         for (AppointmentDetail detail : appointment.getDetails()) {
             if (detail.getPaymentDate() == null) {
                 detail.setPaymentDate(now);
+                paidAny = true;
             }
         }
 
         appointment.setStatus(AppointmentStatus.COMPLETED);
-        appointment = appointmentRepository.save(appointment);
+        updateSchedule(appointment, previousStatus);
+        appointment = saveAndFlush(appointment);
+        // Si la cita ya estaba completada la cabecera no cambia, pero la respuesta sí: la versión (y el ETag) deben avanzar
+        if (paidAny && previousStatus == AppointmentStatus.COMPLETED) {
+            appointment = incrementVersion(appointment);
+        }
+        appointmentRollupService.replace(before, AppointmentRollupService.Contribution.of(appointment));
+        appointmentListView.refresh(appointment);
+        eventPublisher.publishEvent(AppointmentChangedEvent.of(AppointmentChangedEvent.Type.PAID, appointment));
 
         return mapToResponse(appointment);
     }
 
-    @Transactional
     public AppointmentResponse updateStatus(Long id, AppointmentStatus status) {
-        Appointment appointment = appointmentRepository.findById(id)
+        return updateStatus(id, status, null);
+    }
+
+    /**
+     * Cambia el estado de la cita con el mismo tratamiento de versiones que {@link #payAppointment(Long, Long)}.
+     */
+    public AppointmentResponse updateStatus(Long id, AppointmentStatus status, Long expectedVersion) {
+        return optimisticLockRetrier.execute(expectedVersion == null, () -> doUpdateStatus(id, status, expectedVersion));
+    }
+
+    private AppointmentResponse doUpdateStatus(Long id, AppointmentStatus status, Long expectedVersion) {
+        Appointment appointment = appointmentRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+        optimisticLockRetrier.checkVersion(expectedVersion, appointment.getVersion());
+        var before = AppointmentRollupService.Contribution.of(appointment);
+        AppointmentStatus previousStatus = appointment.getStatus();
 
         appointment.setStatus(status);
-        appointment = appointmentRepository.save(appointment);
+        updateSchedule(appointment, previousStatus);
+        appointment = saveAndFlush(appointment);
+        appointmentRollupService.replace(before, AppointmentRollupService.Contribution.of(appointment));
+        appointmentListView.refresh(appointment);
+        eventPublisher.publishEvent(AppointmentChangedEvent.of(AppointmentChangedEvent.Type.STATUS_CHANGED, appointment));
 
         return mapToResponse(appointment);
     }
 
+    /**
+     * Pago masivo: marca como pagados los detalles pendientes y pasa las citas a COMPLETED con dos UPDATE
+     * sobre appointment_detail y appointment, sin cargar cada cita. Agregados diarios, agenda y eventos se
+     * actualizan igual que en {@link #payAppointment}.
+     */
+    @Transactional
+    public BulkOperationResponse payAppointments(BulkAppointmentUpdateRequest request) {
+        return updateInBulk(request, AppointmentStatus.COMPLETED, true);
+    }
+
+    /**
+     * Cambio de estado masivo con un único UPDATE sobre appointment. Mismos efectos que {@link #updateStatus}.
+     */
+    @Transactional
+    public BulkOperationResponse updateStatuses(BulkAppointmentUpdateRequest request) {
+        if (request.getStatus() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El nuevo estado es obligatorio");
+        }
+        return updateInBulk(request, request.getStatus(), false);
+    }
+
+    private BulkOperationResponse updateInBulk(BulkAppointmentUpdateRequest request, AppointmentStatus status, boolean pay) {
+        List<Long> ids = resolveBulkIds(request);
+        Map<Long, AppointmentRepository.AppointmentState> states = ids.isEmpty() ? Map.of()
+                : byId(appointmentRepository.findStates(ids), AppointmentRepository.AppointmentState::getId);
+
+        BulkOperationResponse.ItemResult[] results = new BulkOperationResponse.ItemResult[ids.size()];
+        List<AppointmentRepository.AppointmentState> updated = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        for (int index = 0; index < ids.size(); index++) {
+            Long id = ids.get(index);
+            AppointmentRepository.AppointmentState state = states.get(id);
+            if (state == null) {
+                results[index] = BulkOperationResponse.ItemResult.builder().index(index).id(id).success(false)
+                        .error("Cita no encontrada").build();
+                continue;
+            }
+            try {
+                updateSchedule(state.getDentistId(), id, state.getDateTime(), state.getDurationMinutes(), state.getStatus(), status);
+            } catch (ResponseStatusException e) {
+                results[index] = BulkOperationResponse.ItemResult.builder().index(index).id(id).success(false)
+                        .error(e.getReason()).build();
+                continue;
+            }
+            updated.add(state);
+            indexes.add(index);
+        }
+
+        if (!updated.isEmpty()) {
+            List<Long> updatedIds = updated.stream().map(AppointmentRepository.AppointmentState::getId).toList();
+            try {
+                if (pay) {
+                    appointmentRepository.markDetailsPaid(updatedIds, LocalDateTime.now());
+                }
+                appointmentRepository.updateStatusByIds(updatedIds, status);
+                appointmentListView.updateInBulk(updatedIds, status, pay);
+            } catch (DataIntegrityViolationException e) {
+                throw translateOverlap(e);
+            }
+
+            appointmentRollupService.replaceAll(
+                    updated.stream().map(AppointmentService::contributionOf).toList(),
+                    updated.stream().map(state -> contributionAfter(state, status, pay)).toList());
+
+            AppointmentChangedEvent.Type type = pay ? AppointmentChangedEvent.Type.PAID : AppointmentChangedEvent.Type.STATUS_CHANGED;
+            for (int i = 0; i < updated.size(); i++) {
+                AppointmentRepository.AppointmentState state = updated.get(i);
+                eventPublisher.publishEvent(new AppointmentChangedEvent(type, state.getId(), state.getPatientId(),
+                        state.getDentistId(), state.getDateTime(), status));
+                int index = indexes.get(i);
+                results[index] = BulkOperationResponse.ItemResult.builder().index(index).id(state.getId()).success(true).build();
+            }
+        }
+
+        return BulkOperationResponse.builder()
+                .succeeded(updated.size())
+                .failed(ids.size() - updated.size())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    // Ids explícitos (sin duplicados) o, si no se indican, los que cumplen el filtro
+    private List<Long> resolveBulkIds(BulkAppointmentUpdateRequest request) {
+        List<Long> ids;
+        if (request.getIds() != null && !request.getIds().isEmpty()) {
+            ids = request.getIds().stream().filter(Objects::nonNull).distinct().toList();
+        } else if (request.getFilter() != null) {
+            BulkAppointmentUpdateRequest.Filter filter = request.getFilter();
+            ids = appointmentRepository.findIds(AppointmentSpecifications.buildSpecification(
+                    filter.getPatientId(), filter.getDentistId(), filter.getStatus(),
+                    filter.getStartDate(), filter.getEndDate()), MAX_BULK_ITEMS + 1);
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Debe indicarse una lista de ids o un filtro");
+        }
+        if (ids.size() > MAX_BULK_ITEMS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "No se pueden actualizar más de " + MAX_BULK_ITEMS + " citas por petición");
+        }
+        return ids;
+    }
+
+    private static AppointmentRollupService.Contribution contributionOf(AppointmentRepository.AppointmentState state) {
+        return new AppointmentRollupService.Contribution(state.getDateTime().toLocalDate(), state.getDentistId(),
+                state.getStatus(), state.getUnpaidDetails() > 0 ? 1 : 0, state.getInvoiced(), state.getPending(), state.getCost());
+    }
+
+    // Tras el pago todo lo pendiente pasa a facturado
+    private static AppointmentRollupService.Contribution contributionAfter(AppointmentRepository.AppointmentState state,
+                                                                           AppointmentStatus status, boolean pay) {
+        if (!pay) {
+            return new AppointmentRollupService.Contribution(state.getDateTime().toLocalDate(), state.getDentistId(),
+                    status, state.getUnpaidDetails() > 0 ? 1 : 0, state.getInvoiced(), state.getPending(), state.getCost());
+        }
+        return new AppointmentRollupService.Contribution(state.getDateTime().toLocalDate(), state.getDentistId(),
+                status, 0, state.getInvoiced() + state.getPending(), 0.0, state.getCost());
+    }
+
+    // Ajusta el índice de agenda cuando el cambio de estado ocupa o libera el hueco de la cita
+    private void updateSchedule(Appointment appointment, AppointmentStatus previousStatus) {
+        updateSchedule(appointment.getDentist().getId(), appointment.getId(), appointment.getDateTime(),
+                appointment.getDurationMinutes(), previousStatus, appointment.getStatus());
+    }
+
+    private void updateSchedule(Long dentistId, Long appointmentId, LocalDateTime dateTime, int durationMinutes,
+                                AppointmentStatus previousStatus, AppointmentStatus status) {
+        boolean occupiedBefore = DentistScheduleIndex.occupiesSlot(previousStatus);
+        boolean occupiedAfter = DentistScheduleIndex.occupiesSlot(status);
+
+        if (occupiedBefore && !occupiedAfter) {
+            scheduleIndex.release(dentistId, appointmentId);
+        } else if (!occupiedBefore && occupiedAfter) {
+            var reservation = scheduleIndex.reserve(dentistId, appointmentId, dateTime, durationMinutes);
+            scheduleIndex.bind(reservation, appointmentId);
+        }
+    }
+
+    // El UPDATE vacía el contexto de persistencia, así que se vuelve a cargar la cita con la nueva versión
+    private Appointment incrementVersion(Appointment appointment) {
+        if (appointmentRepository.incrementVersion(appointment.getId(), appointment.getVersion()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Appointment.class, appointment.getId());
+        }
+        return appointmentRepository.findWithDetailsById(appointment.getId())
+                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+    }
+
+    private Appointment saveAndFlush(Appointment appointment) {
+        Appointment saved = appointmentRepository.save(appointment);
+        flush();
+        return saved;
+    }
+
+    // El flush inmediato hace que la restricción de exclusión de PostgreSQL (varias instancias) se traduzca en 409
+    private void flush() {
+        try {
+            appointmentRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateOverlap(e);
+        }
+    }
+
+    private static RuntimeException translateOverlap(DataIntegrityViolationException e) {
+        if (isOverlapViolation(e)) {
+            return new ResponseStatusException(HttpStatus.CONFLICT, "El dentista ya tiene una cita en ese horario");
+        }
+        return e;
+    }
+
+    private static boolean isOverlapViolation(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains(AppointmentOverlapConstraint.CONSTRAINT_NAME);
+    }
+
+    private Appointment buildAppointment(AppointmentRequest request, Patient patient, Dentist dentist,
+                                         Function<Long, io.github.edconde.clinica3s_backend.entity.Service> serviceLookup) {
+        Appointment appointment = Appointment.builder()
+                .dateTime(request.getDateTime())
+                .status(AppointmentStatus.PENDING)
+                .patient(patient)
+                .dentist(dentist)
+                .totalAmount(0.0)
+                .build();
+
+        double totalAmount = 0.0;
+        int servicesDuration = 0;
+
+        for (AppointmentRequest.ServiceDetailRequest serviceReq : request.getServices()) {
+            io.github.edconde.clinica3s_backend.entity.Service service = serviceLookup.apply(serviceReq.getServiceId());
+
+            int quantity = serviceReq.getQuantity() != null ? serviceReq.getQuantity() : 1;
+
+            AppointmentDetail detail = AppointmentDetail.builder()
+                    .service(service)
+                    .quantity(quantity)
+                    .priceApplied(service.getListPrice())
+                    .build();
+
+            appointment.addDetail(detail);
+            totalAmount += service.getListPrice() * quantity;
+            servicesDuration += service.getDurationMinutes() * quantity;
+        }
+
+        appointment.setTotalAmount(totalAmount);
+        if (request.getDurationMinutes() != null) {
+            appointment.setDurationMinutes(request.getDurationMinutes());
+        } else if (servicesDuration > 0) {
+            appointment.setDurationMinutes(servicesDuration);
+        }
+        return appointment;
+    }
+
+    // Devuelve el primer error de la entrada o null si es válida
+    private String validateBulkItem(AppointmentRequest request,
+                                    Map<Long, Patient> patients,
+                                    Map<Long, Dentist> dentists) {
+        if (request == null) {
+            return "Cita vacía";
+        }
+        Set<ConstraintViolation<AppointmentRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        if (!patients.containsKey(request.getPatientId())) {
+            return "Paciente no encontrado: " + request.getPatientId();
+        }
+        if (!dentists.containsKey(request.getDentistId())) {
+            return "Dentista no encontrado: " + request.getDentistId();
+        }
+        for (AppointmentRequest.ServiceDetailRequest serviceReq : request.getServices()) {
+            if (serviceReq == null || serviceCatalog.findById(serviceReq.getServiceId()).isEmpty()) {
+                return "Servicio no encontrado: " + (serviceReq != null ? serviceReq.getServiceId() : null);
+            }
+        }
+        return null;
+    }
+
+    private static Set<Long> collectIds(List<AppointmentRequest> requests, Function<AppointmentRequest, Long> id) {
+        return requests.stream()
+                .filter(Objects::nonNull)
+                .map(id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    /**
+     * Carga con una única consulta los detalles y servicios de las citas indicadas, que deben estar
+     * gestionadas en la transacción actual, para que mapToResponse no dispare consultas por cita.
+     */
+    private void fetchDetails(List<Appointment> appointments) {
+        // Por bloques para no superar el límite de parámetros del IN en los listados sin paginar
+        for (int from = 0; from < appointments.size(); from += FETCH_DETAILS_BATCH_SIZE) {
+            List<Long> ids = appointments.subList(from, Math.min(from + FETCH_DETAILS_BATCH_SIZE, appointments.size()))
+                    .stream()
+                    .map(Appointment::getId)
+                    .toList();
+            appointmentRepository.fetchDetails(ids);
+        }
+    }
+
     private AppointmentResponse mapToResponse(Appointment appointment) {
         return AppointmentResponse.builder()
                 .id(appointment.getId())
                 .dateTime(appointment.getDateTime())
+                .durationMinutes(appointment.getDurationMinutes())
                 .status(appointment.getStatus())
                 .totalAmount(appointment.getTotalAmount())
+                .version(appointment.getVersion())
+                .paid(AppointmentListView.isPaid(appointment.getDetails()))
+                .servicesSummary(AppointmentListView.summarize(appointment.getDetails()))
                 .patient(AppointmentResponse.PatientInfo.builder()
                         .id(appointment.getPatient().getId())
+                        .version(appointment.getPatient().getVersion())
                         .name(appointment.getPatient().getName())
                         .phone(appointment.getPatient().getPhone())
                         .email(appointment.getPatient().getEmail())
@@ -0,0 +1,120 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.AvailabilityResponse;
+import io.github.edconde.clinica3s_backend.repository.DentistRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.github.edconde.clinica3s_backend.service.DentistScheduleIndex.OPENING_TIME;
+import static io.github.edconde.clinica3s_backend.service.DentistScheduleIndex.SLOTS_PER_DAY;
+import static io.github.edconde.clinica3s_backend.service.DentistScheduleIndex.SLOT_MINUTES;
+
+/**
+ * Búsqueda de huecos libres por especialidad. Solo consulta la base de datos para obtener los dentistas
+ * de la especialidad; la ocupación sale de los mapas de bits diarios de {@link DentistScheduleIndex}.
+ */
+@Service
+@RequiredArgsConstructor
+public class AvailabilityService {
+
+    static final int MAX_WINDOW_DAYS = 31;
+    private static final long ALL_SLOTS = (1L << SLOTS_PER_DAY) - 1;
+
+    private final DentistRepository dentistRepository;
+    private final DentistScheduleIndex scheduleIndex;
+
+    /**
+     * Devuelve, para cada dentista de la especialidad con algún hueco, las franjas libres de al menos
+     * {@code durationMinutes} minutos entre {@code from} y {@code to}. Los huecos ya pasados no se ofrecen.
+     */
+    public AvailabilityResponse findAvailability(Long specialtyId, LocalDateTime from, LocalDateTime to,
+                                                 Integer durationMinutes) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La fecha de inicio debe ser anterior a la de fin");
+        }
+        if (Duration.between(from, to).toDays() > MAX_WINDOW_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "La ventana de búsqueda no puede superar " + MAX_WINDOW_DAYS + " días");
+        }
+        int duration = durationMinutes != null ? durationMinutes : SLOT_MINUTES;
+        if (duration <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La duración debe ser positiva");
+        }
+        if (!scheduleIndex.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "La agenda aún no está cargada");
+        }
+
+        int slotsNeeded = (duration + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime effectiveFrom = from.isBefore(now) ? now : from;
+
+        List<AvailabilityResponse.DentistAvailability> dentists = new ArrayList<>();
+        for (DentistRepository.DentistSummary dentist : dentistRepository.findSummariesBySpecialtyId(specialtyId)) {
+            List<AvailabilityResponse.FreeSlot> slots = new ArrayList<>();
+            for (LocalDate day = effectiveFrom.toLocalDate(); !day.isAfter(to.toLocalDate()); day = day.plusDays(1)) {
+                long free = ~scheduleIndex.busySlots(dentist.getId(), day) & windowMask(day, effectiveFrom, to);
+                collectRuns(day, free, slotsNeeded, slots);
+            }
+            if (!slots.isEmpty()) {
+                dentists.add(AvailabilityResponse.DentistAvailability.builder()
+                        .dentistId(dentist.getId())
+                        .dentistName(dentist.getName())
+                        .slots(slots)
+                        .build());
+            }
+        }
+
+        return AvailabilityResponse.builder()
+                .specialtyId(specialtyId)
+                .from(from)
+                .to(to)
+                .durationMinutes(duration)
+                .dentists(dentists)
+                .build();
+    }
+
+    // Huecos del día que empiezan en o después de from y terminan en o antes de to
+    static long windowMask(LocalDate day, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime opening = day.atTime(OPENING_TIME);
+        long first = Math.max(0, ceilDiv(Duration.between(opening, from).toMinutes(), SLOT_MINUTES));
+        long end = Math.min(SLOTS_PER_DAY, Math.floorDiv(Duration.between(opening, to).toMinutes(), SLOT_MINUTES));
+        if (first >= end) {
+            return 0L;
+        }
+        return ALL_SLOTS & (((1L << (end - first)) - 1) << first);
+    }
+
+    // Agrupa los bits libres consecutivos en franjas y descarta las más cortas que la duración pedida
+    static void collectRuns(LocalDate day, long free, int slotsNeeded, List<AvailabilityResponse.FreeSlot> slots) {
+        LocalDateTime opening = day.atTime(OPENING_TIME);
+        int slot = 0;
+        while (slot < SLOTS_PER_DAY) {
+            if ((free & (1L << slot)) == 0) {
+                slot++;
+                continue;
+            }
+            int start = slot;
+            while (slot < SLOTS_PER_DAY && (free & (1L << slot)) != 0) {
+                slot++;
+            }
+            if (slot - start >= slotsNeeded) {
+                slots.add(AvailabilityResponse.FreeSlot.builder()
+                        .start(opening.plusMinutes((long) start * SLOT_MINUTES))
+                        .end(opening.plusMinutes((long) slot * SLOT_MINUTES))
+                        .build());
+            }
+        }
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.DashboardStatsDTO;
+import io.github.edconde.clinica3s_backend.event.AppointmentChangedEvent;
+import io.github.edconde.clinica3s_backend.event.CatalogChangedEvent;
+import io.github.edconde.clinica3s_backend.event.DentistChangedEvent;
+import io.github.edconde.clinica3s_backend.event.PatientChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caché por año de las estadísticas del dashboard.
+ * <ul>
+ *   <li>Los fallos concurrentes para el mismo año comparten un único cálculo (single-flight).</li>
+ *   <li>Las entradas se invalidan con los eventos de dominio tras el commit, o al superar el TTL.</li>
+ *   <li>Con {@code serve-stale} activo, una entrada invalidada se sigue sirviendo mientras se recalcula en segundo plano.</li>
+ * </ul>
+ * Los contadores se publican en Actuator como {@code reports.dashboard.cache} con la etiqueta {@code result}.
+ */
+@Component
+@Slf4j
+public class DashboardStatsCache {
+
+    // Clave usada para las estadísticas sin filtro de año
+    private static final int ALL_YEARS = 0;
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // Se incrementa con cada invalidación; permite saber si llegó alguna durante un recálculo en segundo plano
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Duration ttl;
+    private final boolean serveStale;
+    // Los recálculos en segundo plano hacen consultas bloqueantes: no deben ocupar el commonPool, que es el
+    // que usa DashboardStatsEngine para la agregación en paralelo
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-stats-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter staleHits;
+
+    public DashboardStatsCache(MeterRegistry meterRegistry,
+                               @Value("${application.reports.dashboard-cache.ttl:1m}") Duration ttl,
+                               @Value("${application.reports.dashboard-cache.serve-stale:false}") boolean serveStale) {
+        this.ttl = ttl;
+        this.serveStale = serveStale;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        this.staleHits = counter(meterRegistry, "stale");
+    }
+
+    public DashboardStatsDTO get(Integer year, Function<Integer, DashboardStatsDTO> loader) {
+        int key = year != null ? year : ALL_YEARS;
+
+        while (true) {
+            Entry current = entries.get(key);
+
+            if (current == null) {
+                Entry created = new Entry();
+                Entry existing = entries.putIfAbsent(key, created);
+                if (existing == null) {
+                    misses.increment();
+                    return load(key, year, created, loader);
+                }
+                current = existing;
+            }
+
+            // Otro hilo está calculando este año: esperar a su resultado
+            if (!current.value.isDone()) {
+                coalesced.increment();
+                return join(current.value);
+            }
+
+            if (current.isFresh(ttl)) {
+                hits.increment();
+                return join(current.value);
+            }
+
+            if (serveStale && !current.value.isCompletedExceptionally()) {
+                staleHits.increment();
+                refreshInBackground(key, year, current, loader);
+                return join(current.value);
+            }
+
+            entries.remove(key, current);
+        }
+    }
+
+    public void invalidate(Integer year) {
+        markStale(year != null ? year : ALL_YEARS);
+        markStale(ALL_YEARS);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.values().forEach(entry -> entry.stale = true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        invalidate(event.dateTime().getYear());
+    }
+
+    // El total de pacientes forma parte de todas las entradas; editar un paciente no lo cambia
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPatientChanged(PatientChangedEvent event) {
+        if (event.type() != PatientChangedEvent.Type.UPDATED) {
+            invalidateAll();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        invalidateAll();
+    }
+
+    // La comisión de cada dentista se calcula con su porcentaje actual
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDentistChanged(DentistChangedEvent event) {
+        invalidateAll();
+    }
+
+    private void markStale(int key) {
+        invalidations.incrementAndGet();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            // Si el cálculo está en curso, su resultado nacerá ya invalidado
+            entry.stale = true;
+        }
+    }
+
+    private DashboardStatsDTO load(int key, Integer year, Entry entry, Function<Integer, DashboardStatsDTO> loader) {
+        try {
+            DashboardStatsDTO stats = loader.apply(year);
+            entry.complete(stats);
+            return stats;
+        } catch (RuntimeException e) {
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void refreshInBackground(int key, Integer year, Entry stale, Function<Integer, DashboardStatsDTO> loader) {
+        if (!stale.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            Entry fresh = new Entry();
+            long invalidationsBefore = invalidations.get();
+            try {
+                fresh.complete(loader.apply(year));
+                entries.replace(key, stale, fresh);
+                // Una invalidación durante el cálculo marcó la entrada anterior, no esta, y el resultado puede
+                // no incluir el cambio: se instala igualmente, pero ya invalidada. Las posteriores al replace la
+                // encuentran en el mapa
+                if (invalidations.get() != invalidationsBefore) {
+                    fresh.stale = true;
+                }
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron recalcular las estadísticas del dashboard para {}", year, e);
+                stale.refreshing.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private static DashboardStatsDTO join(CompletableFuture<DashboardStatsDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("reports.dashboard.cache")
+                .description("Accesos a la caché de estadísticas del dashboard")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<DashboardStatsDTO> value = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile boolean stale;
+        private volatile long loadedAt;
+
+        private void complete(DashboardStatsDTO stats) {
+            loadedAt = System.nanoTime();
+            value.complete(stats);
+        }
+
+        private boolean isFresh(Duration ttl) {
+            return !stale && System.nanoTime() - loadedAt < ttl.toNanos();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Motor de agregación del dashboard. Recorre una sola vez las filas de agregados diarios y acumula
+ * todos los indicadores en arrays primitivos indexados por mes y por dentista.
+ * Las entradas grandes se reparten en particiones que se procesan en el ForkJoinPool común y se combinan.
+ */
+public final class DashboardStatsEngine {
+
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private DashboardStatsEngine() {
+    }
+
+    /**
+     * @param futureFromEpochDay primer día (epoch day) que se considera futuro para el conteo de citas agendadas
+     */
+    public static Totals aggregate(Rows rows, long futureFromEpochDay) {
+        if (rows.size <= PARALLEL_THRESHOLD) {
+            return aggregate(rows, 0, rows.size, futureFromEpochDay);
+        }
+        return ForkJoinPool.commonPool().invoke(new AggregateTask(rows, 0, rows.size, futureFromEpochDay));
+    }
+
+    private static Totals aggregate(Rows rows, int from, int to, long futureFromEpochDay) {
+        Totals totals = new Totals(rows.monthCount, rows.dentistIds.length);
+
+        for (int i = from; i < to; i++) {
+            long appointments = rows.appointments[i];
+            int month = rows.month[i];
+            int dentist = rows.dentist[i];
+
+            totals.totalAppointments += appointments;
+            totals.monthAppointments[month] += appointments;
+            totals.dentistAppointments[dentist] += appointments;
+            if (rows.epochDay[i] >= futureFromEpochDay) {
+                totals.futureAppointments += appointments;
+            }
+
+            // Solo las citas completadas generan facturación, coste y pagos pendientes
+            if (rows.completed[i]) {
+                double invoiced = rows.invoiced[i];
+                double cost = rows.cost[i];
+                totals.completedAppointments += appointments;
+                totals.unpaidAppointments += rows.unpaid[i];
+                totals.invoiced += invoiced;
+                totals.pending += rows.pending[i];
+                totals.cost += cost;
+                totals.monthRevenue[month] += invoiced - cost;
+                totals.dentistInvoiced[dentist] += invoiced;
+                totals.dentistCost[dentist] += cost;
+            }
+        }
+
+        return totals;
+    }
+
+    private static final class AggregateTask extends RecursiveTask<Totals> {
+        private final Rows rows;
+        private final int from;
+        private final int to;
+        private final long futureFromEpochDay;
+
+        private AggregateTask(Rows rows, int from, int to, long futureFromEpochDay) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.futureFromEpochDay = futureFromEpochDay;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return aggregate(rows, from, to, futureFromEpochDay);
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(rows, from, middle, futureFromEpochDay);
+            AggregateTask right = new AggregateTask(rows, middle, to, futureFromEpochDay);
+            left.fork();
+            Totals result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Filas de agregados en formato columnar. El mes y el dentista se guardan ya como índices densos.
+     */
+    public static final class Rows {
+        private final int size;
+        private final long[] epochDay;
+        private final int[] month;
+        private final int[] dentist;
+        private final boolean[] completed;
+        private final long[] appointments;
+        private final long[] unpaid;
+        private final double[] invoiced;
+        private final double[] pending;
+        private final double[] cost;
+        private final int firstMonth;
+        private final int monthCount;
+        private final long[] dentistIds;
+
+        private Rows(Builder builder) {
+            this.size = builder.size;
+            this.epochDay = Arrays.copyOf(builder.epochDay, size);
+            this.dentist = Arrays.copyOf(builder.dentist, size);
+            this.completed = Arrays.copyOf(builder.completed, size);
+            this.appointments = Arrays.copyOf(builder.appointments, size);
+            this.unpaid = Arrays.copyOf(builder.unpaid, size);
+            this.invoiced = Arrays.copyOf(builder.invoiced, size);
+            this.pending = Arrays.copyOf(builder.pending, size);
+            this.cost = Arrays.copyOf(builder.cost, size);
+            this.firstMonth = size > 0 ? builder.minMonth : 0;
+            this.monthCount = size > 0 ? builder.maxMonth - builder.minMonth + 1 : 0;
+            this.month = new int[size];
+            for (int i = 0; i < size; i++) {
+                month[i] = builder.absoluteMonth[i] - firstMonth;
+            }
+            this.dentistIds = new long[builder.dentistIndex.size()];
+            builder.dentistIndex.forEach((id, index) -> dentistIds[index] = id);
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int monthCount() {
+            return monthCount;
+        }
+
+        public YearMonth yearMonth(int monthIndex) {
+            int absolute = firstMonth + monthIndex;
+            return YearMonth.of(absolute / 12, absolute % 12 + 1);
+        }
+
+        public int dentistCount() {
+            return dentistIds.length;
+        }
+
+        public long dentistId(int dentistIndex) {
+            return dentistIds[dentistIndex];
+        }
+    }
+
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 512;
+
+        private int size;
+        private long[] epochDay = new long[INITIAL_CAPACITY];
+        private int[] absoluteMonth = new int[INITIAL_CAPACITY];
+        private int[] dentist = new int[INITIAL_CAPACITY];
+        private boolean[] completed = new boolean[INITIAL_CAPACITY];
+        private long[] appointments = new long[INITIAL_CAPACITY];
+        private long[] unpaid = new long[INITIAL_CAPACITY];
+        private double[] invoiced = new double[INITIAL_CAPACITY];
+        private double[] pending = new double[INITIAL_CAPACITY];
+        private double[] cost = new double[INITIAL_CAPACITY];
+        private int minMonth = Integer.MAX_VALUE;
+        private int maxMonth = Integer.MIN_VALUE;
+        private final Map<Long, Integer> dentistIndex = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder add(LocalDate day, long dentistId, AppointmentStatus status,
+                           long appointmentCount, long unpaidCount,
+                           double invoicedAmount, double pendingAmount, double costAmount) {
+            if (size == epochDay.length) {
+                grow();
+            }
+            int monthOrdinal = day.getYear() * 12 + day.getMonthValue() - 1;
+            minMonth = Math.min(minMonth, monthOrdinal);
+            maxMonth = Math.max(maxMonth, monthOrdinal);
+
+            epochDay[size] = day.toEpochDay();
+            absoluteMonth[size] = monthOrdinal;
+            dentist[size] = dentistIndex.computeIfAbsent(dentistId, id -> dentistIndex.size());
+            completed[size] = status == AppointmentStatus.COMPLETED;
+            appointments[size] = appointmentCount;
+            unpaid[size] = unpaidCount;
+            invoiced[size] = invoicedAmount;
+            pending[size] = pendingAmount;
+            cost[size] = costAmount;
+            size++;
+            return this;
+        }
+
+        public Rows build() {
+            return new Rows(this);
+        }
+
+        private void grow() {
+            int capacity = epochDay.length * 2;
+            epochDay = Arrays.copyOf(epochDay, capacity);
+            absoluteMonth = Arrays.copyOf(absoluteMonth, capacity);
+            dentist = Arrays.copyOf(dentist, capacity);
+            completed = Arrays.copyOf(completed, capacity);
+            appointments = Arrays.copyOf(appointments, capacity);
+            unpaid = Arrays.copyOf(unpaid, capacity);
+            invoiced = Arrays.copyOf(invoiced, capacity);
+            pending = Arrays.copyOf(pending, capacity);
+            cost = Arrays.copyOf(cost, capacity);
+        }
+    }
+
+    /**
+     * Resultado de la agregación. Los arrays por mes y por dentista usan los índices de {@link Rows}.
+     */
+    public static final class Totals {
+        long totalAppointments;
+        long completedAppointments;
+        long unpaidAppointments;
+        long futureAppointments;
+        double invoiced;
+        double pending;
+        double cost;
+        final long[] monthAppointments;
+        final double[] monthRevenue;
+        final long[] dentistAppointments;
+        final double[] dentistInvoiced;
+        final double[] dentistCost;
+
+        private Totals(int months, int dentists) {
+            this.monthAppointments = new long[months];
+            this.monthRevenue = new double[months];
+            this.dentistAppointments = new long[dentists];
+            this.dentistInvoiced = new double[dentists];
+            this.dentistCost = new double[dentists];
+        }
+
+        private void merge(Totals other) {
+            totalAppointments += other.totalAppointments;
+            completedAppointments += other.completedAppointments;
+            unpaidAppointments += other.unpaidAppointments;
+            futureAppointments += other.futureAppointments;
+            invoiced += other.invoiced;
+            pending += other.pending;
+            cost += other.cost;
+            for (int i = 0; i < monthAppointments.length; i++) {
+                monthAppointments[i] += other.monthAppointments[i];
+                monthRevenue[i] += other.monthRevenue[i];
+            }
+            for (int i = 0; i < dentistAppointments.length; i++) {
+                dentistAppointments[i] += other.dentistAppointments[i];
+                dentistInvoiced[i] += other.dentistInvoiced[i];
+                dentistCost[i] += other.dentistCost[i];
+            }
+        }
+    }
+}
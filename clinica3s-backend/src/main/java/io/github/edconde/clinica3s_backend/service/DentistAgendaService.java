@@ -0,0 +1,188 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.DentistAgendaResponse;
+import io.github.edconde.clinica3s_backend.entity.AppointmentListEntry;
+import io.github.edconde.clinica3s_backend.event.AppointmentChangedEvent;
+import io.github.edconde.clinica3s_backend.event.CatalogChangedEvent;
+import io.github.edconde.clinica3s_backend.event.PatientChangedEvent;
+import io.github.edconde.clinica3s_backend.repository.AppointmentListEntryRepository;
+import io.github.edconde.clinica3s_backend.repository.DentistRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agenda diaria de cada dentista, servida desde una caché por (dentista, día). Las entradas se cargan del
+ * listado desnormalizado (una consulta por el índice de dentista y fecha) y se descartan tras el commit de
+ * cualquier escritura de una cita de ese dentista y día, o de los datos de un paciente. Las agendas de hoy
+ * y mañana se precargan al arrancar y periódicamente, de modo que la apertura de la agenda al empezar la
+ * consulta no llega a la base de datos.
+ * <p>
+ * Una entrada que se invalida mientras se carga se retira del mapa, así que su resultado (que puede no
+ * incluir el cambio) solo lo reciben las peticiones que ya la esperaban.
+ * <p>
+ * Métricas: {@code dentists.agenda.cache} con result = hit, miss o coalesced.
+ */
+@Service
+@Slf4j
+public class DentistAgendaService {
+
+    private final ConcurrentHashMap<Key, CompletableFuture<DentistAgendaResponse>> entries = new ConcurrentHashMap<>();
+    private final AppointmentListEntryRepository entryRepository;
+    private final DentistRepository dentistRepository;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public DentistAgendaService(AppointmentListEntryRepository entryRepository,
+                                DentistRepository dentistRepository,
+                                MeterRegistry meterRegistry) {
+        this.entryRepository = entryRepository;
+        this.dentistRepository = dentistRepository;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.coalesced = counter(meterRegistry, "coalesced");
+    }
+
+    public DentistAgendaResponse getAgenda(Long dentistId, LocalDate date) {
+        Key key = new Key(dentistId, date != null ? date : LocalDate.now());
+        CompletableFuture<DentistAgendaResponse> current = entries.get(key);
+        if (current != null) {
+            (current.isDone() ? hits : coalesced).increment();
+            return join(current);
+        }
+
+        CompletableFuture<DentistAgendaResponse> created = new CompletableFuture<>();
+        CompletableFuture<DentistAgendaResponse> existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+        misses.increment();
+        try {
+            DentistAgendaResponse agenda = load(key);
+            created.complete(agenda);
+            return agenda;
+        } catch (RuntimeException e) {
+            // Los errores (dentista inexistente) no se guardan
+            entries.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(Long dentistId, LocalDate date) {
+        entries.remove(new Key(dentistId, date));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        invalidate(event.dentistId(), event.dateTime().toLocalDate());
+    }
+
+    // La agenda muestra nombre y teléfono del paciente
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPatientChanged(PatientChangedEvent event) {
+        if (event.type() == PatientChangedEvent.Type.UPDATED) {
+            invalidateAll();
+        }
+    }
+
+    // Y el resumen de servicios del listado, que lleva sus nombres
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.type() == CatalogChangedEvent.Type.SERVICE) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Recarga las agendas de hoy y mañana de todos los dentistas y descarta las de días pasados. La recarga
+     * periódica también recoge los cambios hechos fuera de la aplicación (por ejemplo, al regenerar el listado).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.dentists.agenda.warm-interval:5m}",
+               fixedDelayString = "${application.dentists.agenda.warm-interval:5m}")
+    public void warm() {
+        LocalDate today = LocalDate.now();
+        entries.keySet().removeIf(key -> key.date().isBefore(today));
+        int loaded = 0;
+        for (DentistRepository.DentistSummary dentist : dentistRepository.findSummaries()) {
+            for (LocalDate date : List.of(today, today.plusDays(1))) {
+                invalidate(dentist.getId(), date);
+                getAgenda(dentist.getId(), date);
+                loaded++;
+            }
+        }
+        log.debug("Agendas de dentistas precargadas: {}", loaded);
+    }
+
+    private DentistAgendaResponse load(Key key) {
+        DentistRepository.DentistSummary dentist = dentistRepository.findSummaryById(key.dentistId())
+                .orElseThrow(() -> new RuntimeException("Dentista no encontrado"));
+        List<DentistAgendaResponse.AgendaItem> items = entryRepository
+                .findByDentistBetween(key.dentistId(), key.date().atStartOfDay(), key.date().plusDays(1).atStartOfDay())
+                .stream()
+                .map(DentistAgendaService::toItem)
+                .toList();
+        return DentistAgendaResponse.builder()
+                .dentistId(dentist.getId())
+                .dentistName(dentist.getName())
+                .date(key.date())
+                .appointments(items)
+                .build();
+    }
+
+    private static DentistAgendaResponse.AgendaItem toItem(AppointmentListEntry entry) {
+        return DentistAgendaResponse.AgendaItem.builder()
+                .appointmentId(entry.getId())
+                .start(entry.getDateTime())
+                .end(entry.getDateTime().plusMinutes(entry.getDurationMinutes()))
+                .status(entry.getStatus())
+                .patientId(entry.getPatientId())
+                .patientName(entry.getPatientName())
+                .patientPhone(entry.getPatientPhone())
+                .servicesSummary(entry.getServicesSummary())
+                .totalAmount(entry.getTotalAmount())
+                .paid(entry.getPaid())
+                .build();
+    }
+
+    private static DentistAgendaResponse join(CompletableFuture<DentistAgendaResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("dentists.agenda.cache")
+                .description("Accesos a la caché de agendas diarias de dentistas")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(Long dentistId, LocalDate date) {
+    }
+}
@@ -0,0 +1,356 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice en memoria de los huecos ocupados por cada dentista, usado para rechazar citas solapadas sin
+ * consultar la base de datos. Cada dentista tiene un árbol de intervalos ordenado por inicio; la
+ * comprobación recorre solo los intervalos que empiezan dentro de la duración máxima registrada antes
+ * del nuevo inicio, por lo que es logarítmica en el número de citas.
+ * <p>
+ * Se siembra al arrancar con las citas desde el inicio del día y cada noche se descartan los días ya
+ * pasados; para citas anteriores al inicio del índice se consulta la base de datos. Las reservas hechas
+ * dentro de una transacción se deshacen si ésta no se confirma.
+ * En PostgreSQL el caso de varias instancias lo protege la restricción de exclusión appointment_no_overlap,
+ * que {@link AppointmentOverlapConstraint} crea si falta o, si no puede, hace fallar el arranque.
+ * <p>
+ * Junto a los intervalos se mantiene, por dentista y día, un mapa de bits con los huecos de
+ * {@value #SLOT_MINUTES} minutos del horario de consulta que están ocupados (bit i = hueco que empieza
+ * en la apertura + i * {@value #SLOT_MINUTES} minutos). Se recalcula a partir del árbol en cada alta o
+ * baja, por lo que la búsqueda de disponibilidad no necesita consultar la base de datos.
+ */
+@Component
+@Slf4j
+public class DentistScheduleIndex {
+
+    // Cota del solapamiento que se busca al comprobar citas anteriores al inicio del índice
+    private static final long MAX_LOOKBEHIND_MINUTES = 24 * 60;
+
+    // Horario de consulta: los mismos huecos de 9:00 a 19:00 que genera DataInitializer
+    public static final LocalTime OPENING_TIME = LocalTime.of(9, 0);
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = 20;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ConcurrentHashMap<Long, DentistSlots> dentists = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile LocalDateTime indexedFrom = LocalDateTime.MAX;
+
+    public DentistScheduleIndex(AppointmentRepository appointmentRepository) {
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    /**
+     * Indica si la cita ocupa hueco en la agenda. Las citas marcadas como no presentadas lo liberan.
+     */
+    public static boolean occupiesSlot(AppointmentStatus status) {
+        return status != AppointmentStatus.NO_SHOW;
+    }
+
+    /**
+     * Indica si el índice ya se ha sembrado; antes de eso los mapas de huecos están vacíos.
+     */
+    public boolean isReady() {
+        return indexedFrom != LocalDateTime.MAX;
+    }
+
+    /**
+     * Mapa de bits de los huecos ocupados del dentista en el día indicado. Solo es fiable para días
+     * posteriores al inicio del índice.
+     */
+    public long busySlots(Long dentistId, LocalDate day) {
+        DentistSlots slots = dentists.get(dentistId);
+        return slots == null ? 0L : slots.busyByDay.getOrDefault(day.toEpochDay(), 0L);
+    }
+
+    /**
+     * Carga las citas desde el inicio del día. Las filas leídas se agrupan aparte y luego se añaden a cada
+     * dentista sin vaciar el índice: las reservas hechas entre el arranque del contexto y este evento (que
+     * pueden no estar confirmadas todavía) se conservan, y las citas que ya tienen hueco no se duplican.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        Map<Long, List<Slot>> loaded = new HashMap<>();
+        for (AppointmentRepository.ScheduledSlot slot : appointmentRepository.findScheduledSlotsFrom(from, AppointmentStatus.NO_SHOW)) {
+            loaded.computeIfAbsent(slot.getDentistId(), id -> new ArrayList<>()).add(new Slot(sequence.incrementAndGet(),
+                    slot.getId(), slot.getDateTime(), slot.getDateTime().plusMinutes(slot.getDurationMinutes())));
+        }
+
+        int count = 0;
+        for (Map.Entry<Long, List<Slot>> entry : loaded.entrySet()) {
+            DentistSlots slots = slots(entry.getKey());
+            synchronized (slots) {
+                for (Slot slot : entry.getValue()) {
+                    if (!slots.byAppointment.containsKey(slot.appointmentId)) {
+                        slots.add(slot);
+                        count++;
+                    }
+                }
+            }
+        }
+        indexedFrom = from;
+        log.info("Índice de agenda de dentistas cargado ({} citas desde {})", count, from);
+    }
+
+    /**
+     * Descarta los huecos de días anteriores al actual y adelanta el inicio del índice, de modo que las
+     * citas pasadas se vuelven a comprobar contra la base de datos y el índice no crece indefinidamente.
+     */
+    @Scheduled(cron = "${application.appointments.schedule-index.prune-cron:0 5 0 * * *}")
+    public void prunePastDays() {
+        if (!isReady()) {
+            return;
+        }
+        LocalDateTime from = LocalDate.now().atStartOfDay();
+        indexedFrom = from;
+        int removed = 0;
+        for (DentistSlots slots : dentists.values()) {
+            synchronized (slots) {
+                removed += slots.removeEndingBefore(from);
+            }
+        }
+        log.info("Índice de agenda de dentistas: {} huecos anteriores a {} descartados", removed, from);
+    }
+
+    /**
+     * Reserva el intervalo [start, start + duración) para el dentista o lanza 409 si se solapa con otra cita.
+     * Dentro de una transacción, la reserva se libera automáticamente si se produce un rollback.
+     *
+     * @param appointmentId id de la cita si ya existe (cambio de estado), o null para una cita nueva
+     * @return la reserva, a la que se asigna el id de la cita con {@link #bind} una vez guardada
+     */
+    Reservation reserve(Long dentistId, Long appointmentId, LocalDateTime start, int durationMinutes) {
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+
+        if (start.isBefore(indexedFrom) && overlapsInDatabase(dentistId, appointmentId, start, end)) {
+            throw conflict();
+        }
+
+        DentistSlots slots = slots(dentistId);
+        Slot slot = new Slot(sequence.incrementAndGet(), appointmentId, start, end);
+        synchronized (slots) {
+            if (slots.overlaps(start, end, appointmentId)) {
+                throw conflict();
+            }
+            slots.add(slot);
+        }
+
+        Reservation reservation = new Reservation(dentistId, slot);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        remove(reservation.dentistId(), reservation.slot());
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    void bind(Reservation reservation, Long appointmentId) {
+        DentistSlots slots = slots(reservation.dentistId());
+        synchronized (slots) {
+            reservation.slot().appointmentId = appointmentId;
+            slots.byAppointment.put(appointmentId, reservation.slot());
+        }
+    }
+
+    /**
+     * Libera el hueco de una cita. Dentro de una transacción se aplica solo tras el commit.
+     */
+    public void release(Long dentistId, Long appointmentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseNow(dentistId, appointmentId);
+                }
+            });
+        } else {
+            releaseNow(dentistId, appointmentId);
+        }
+    }
+
+    private void releaseNow(Long dentistId, Long appointmentId) {
+        DentistSlots slots = dentists.get(dentistId);
+        if (slots == null) {
+            return;
+        }
+        synchronized (slots) {
+            Slot slot = slots.byAppointment.get(appointmentId);
+            if (slot != null) {
+                slots.remove(slot);
+            }
+        }
+    }
+
+    private void remove(Long dentistId, Slot slot) {
+        DentistSlots slots = slots(dentistId);
+        synchronized (slots) {
+            slots.remove(slot);
+        }
+    }
+
+    private boolean overlapsInDatabase(Long dentistId, Long appointmentId, LocalDateTime start, LocalDateTime end) {
+        return appointmentRepository.findScheduledSlotsBetween(dentistId, start.minusMinutes(MAX_LOOKBEHIND_MINUTES), end,
+                        AppointmentStatus.NO_SHOW).stream()
+                .filter(slot -> !slot.getId().equals(appointmentId))
+                .anyMatch(slot -> slot.getDateTime().isBefore(end)
+                        && slot.getDateTime().plusMinutes(slot.getDurationMinutes()).isAfter(start));
+    }
+
+    private DentistSlots slots(Long dentistId) {
+        return dentists.computeIfAbsent(dentistId, id -> new DentistSlots());
+    }
+
+    private static ResponseStatusException conflict() {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "El dentista ya tiene una cita en ese horario");
+    }
+
+    record Reservation(Long dentistId, Slot slot) {
+    }
+
+    static final class Slot {
+        private static final Comparator<Slot> ORDER = Comparator.comparing((Slot slot) -> slot.start)
+                .thenComparingLong(slot -> slot.sequence);
+
+        private final long sequence;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private Long appointmentId;
+
+        private Slot(long sequence, Long appointmentId, LocalDateTime start, LocalDateTime end) {
+            this.sequence = sequence;
+            this.appointmentId = appointmentId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Intervalos de un dentista. Se accede siempre sincronizando sobre la instancia.
+     */
+    private static final class DentistSlots {
+        private final TreeSet<Slot> byStart = new TreeSet<>(Slot.ORDER);
+        private final Map<Long, Slot> byAppointment = new HashMap<>();
+        // Se escribe bajo el cerrojo de la instancia; las lecturas de disponibilidad no lo necesitan
+        private final ConcurrentHashMap<Long, Long> busyByDay = new ConcurrentHashMap<>();
+        private long maxDurationMinutes;
+
+        private boolean overlaps(LocalDateTime start, LocalDateTime end, Long ignoredAppointmentId) {
+            // Solo pueden solaparse los intervalos que empiezan en [start - duración máxima, end)
+            Slot from = new Slot(Long.MIN_VALUE, null, start.minusMinutes(maxDurationMinutes), null);
+            Slot to = new Slot(Long.MIN_VALUE, null, end, null);
+            NavigableSet<Slot> candidates = byStart.subSet(from, true, to, false);
+            for (Slot slot : candidates) {
+                if (slot.end.isAfter(start) && (ignoredAppointmentId == null || !ignoredAppointmentId.equals(slot.appointmentId))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void add(Slot slot) {
+            byStart.add(slot);
+            if (slot.appointmentId != null) {
+                byAppointment.put(slot.appointmentId, slot);
+            }
+            maxDurationMinutes = Math.max(maxDurationMinutes, Duration.between(slot.start, slot.end).toMinutes());
+            refreshBusyDays(slot);
+        }
+
+        private void remove(Slot slot) {
+            if (byStart.remove(slot)) {
+                refreshBusyDays(slot);
+            }
+            if (slot.appointmentId != null) {
+                byAppointment.remove(slot.appointmentId, slot);
+            }
+        }
+
+        // Intervalos que terminan antes de limit, y mapas de bits de los días anteriores a limit
+        private int removeEndingBefore(LocalDateTime limit) {
+            int removed = 0;
+            Iterator<Slot> iterator = byStart.iterator();
+            while (iterator.hasNext()) {
+                Slot slot = iterator.next();
+                if (!slot.start.isBefore(limit)) {
+                    break;
+                }
+                if (!slot.end.isAfter(limit)) {
+                    iterator.remove();
+                    if (slot.appointmentId != null) {
+                        byAppointment.remove(slot.appointmentId, slot);
+                    }
+                    removed++;
+                }
+            }
+            long firstDay = limit.toLocalDate().toEpochDay();
+            busyByDay.keySet().removeIf(day -> day < firstDay);
+            return removed;
+        }
+
+        // Al quitar una cita no basta con borrar sus bits: puede haber otra cita solapada en el mismo hueco
+        private void refreshBusyDays(Slot slot) {
+            LocalDate last = slot.end.minusNanos(1).toLocalDate();
+            for (LocalDate day = slot.start.toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+                long busy = computeBusy(day);
+                if (busy == 0) {
+                    busyByDay.remove(day.toEpochDay());
+                } else {
+                    busyByDay.put(day.toEpochDay(), busy);
+                }
+            }
+        }
+
+        private long computeBusy(LocalDate day) {
+            LocalDateTime opening = day.atTime(OPENING_TIME);
+            LocalDateTime closing = opening.plusMinutes((long) SLOTS_PER_DAY * SLOT_MINUTES);
+            Slot from = new Slot(Long.MIN_VALUE, null, opening.minusMinutes(maxDurationMinutes), null);
+            Slot to = new Slot(Long.MIN_VALUE, null, closing, null);
+
+            long busy = 0L;
+            for (Slot slot : byStart.subSet(from, true, to, false)) {
+                if (!slot.end.isAfter(opening)) {
+                    continue;
+                }
+                long first = Math.max(0, Math.floorDiv(Duration.between(opening, slot.start).toMinutes(), SLOT_MINUTES));
+                long last = Math.min(SLOTS_PER_DAY - 1,
+                        Math.floorDiv(Duration.between(opening, slot.end).toMinutes() - 1, SLOT_MINUTES));
+                if (first <= last) {
+                    busy |= ((1L << (last - first + 1)) - 1) << first;
+                }
+            }
+            return busy;
+        }
+    }
+}
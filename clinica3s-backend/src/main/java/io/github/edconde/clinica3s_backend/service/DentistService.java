@@ -1,11 +1,15 @@
 package io.github.edconde.clinica3s_backend.service;
 
 import io.github.edconde.clinica3s_backend.entity.Dentist;
+import io.github.edconde.clinica3s_backend.event.DentistChangedEvent;
 import io.github.edconde.clinica3s_backend.repository.DentistRepository;
 import io.github.edconde.clinica3s_backend.repository.DentistSpecifications;
+import io.github.edconde.clinica3s_backend.repository.SliceQueries;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,6 +20,10 @@ import java.util.List;
 public class DentistService {
 
     private final DentistRepository dentistRepository;
+    private final AppointmentListView appointmentListView;
+    private final SliceQueries sliceQueries;
+    private final RowCountEstimator rowCountEstimator;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Dentist> findAll(Pageable pageable) {
         return dentistRepository.findAll(pageable);
@@ -30,6 +38,18 @@ public class DentistService {
         return dentistRepository.findAll(spec, pageable);
     }
 
+    // Mismos filtros sin count(*), para pagination=slice
+    public Slice<Dentist> findSliceWithFilters(String name, Long specialtyId, Pageable pageable) {
+        var spec = DentistSpecifications.buildSpecification(name, specialtyId);
+        return sliceQueries.findSlice(Dentist.class, spec, pageable);
+    }
+
+    public long estimateCount(String name, Long specialtyId) {
+        var spec = DentistSpecifications.buildSpecification(name, specialtyId);
+        return rowCountEstimator.estimate("dentist", RowCountEstimator.filterKey(name, specialtyId),
+                () -> dentistRepository.count(spec));
+    }
+
     public Dentist findById(Long id) {
         return dentistRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Dentista no encontrado"));
@@ -47,7 +67,9 @@ public class DentistService {
 
     @Transactional
     public Dentist create(Dentist dentist) {
-        return dentistRepository.save(dentist);
+        Dentist saved = dentistRepository.save(dentist);
+        eventPublisher.publishEvent(new DentistChangedEvent(DentistChangedEvent.Type.CREATED, saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -58,7 +80,10 @@ public class DentistService {
         if (dentist.getSpecialties() != null) {
             existing.setSpecialties(dentist.getSpecialties());
         }
-        return dentistRepository.save(existing);
+        Dentist saved = dentistRepository.save(existing);
+        appointmentListView.updateDentist(saved);
+        eventPublisher.publishEvent(new DentistChangedEvent(DentistChangedEvent.Type.UPDATED, saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -67,6 +92,7 @@ public class DentistService {
             throw new RuntimeException("Dentista no encontrado");
         }
         dentistRepository.deleteById(id);
+        eventPublisher.publishEvent(new DentistChangedEvent(DentistChangedEvent.Type.DELETED, id));
     }
 }
 
@@ -0,0 +1,98 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta escrituras sobre entidades versionadas en su propia transacción y, si la transición es
+ * idempotente (el cliente no ha fijado una versión con If-Match), la repite desde la lectura cuando
+ * otra transacción ha modificado la misma fila. Si se agotan los intentos, o si el cliente esperaba una
+ * versión concreta, se responde 409.
+ * <p>
+ * Métricas: {@code appointments.optimistic_lock} con outcome = committed, retried, conflict o precondition_failed.
+ */
+@Component
+@Slf4j
+public class OptimisticLockRetrier {
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+
+    private final Counter committed;
+    private final Counter retried;
+    private final Counter conflicts;
+    private final Counter preconditionFailures;
+
+    public OptimisticLockRetrier(PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${application.appointments.optimistic-lock.max-attempts:3}") int maxAttempts) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.committed = counter(meterRegistry, "committed");
+        this.retried = counter(meterRegistry, "retried");
+        this.conflicts = counter(meterRegistry, "conflict");
+        this.preconditionFailures = counter(meterRegistry, "precondition_failed");
+    }
+
+    /**
+     * @param retryable true si la acción puede repetirse con el estado actual sin cambiar su significado
+     */
+    public <T> T execute(boolean retryable, Supplier<T> action) {
+        int attempts = retryable ? maxAttempts : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> action.get());
+                committed.increment();
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    conflicts.increment();
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "La cita ha sido modificada por otro usuario; vuelva a cargarla", e);
+                }
+                retried.increment();
+                log.debug("Conflicto optimista, reintento {} de {}", attempt + 1, attempts);
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Comprueba la versión indicada en If-Match (null = sin condición) y lanza 412 si no coincide.
+     */
+    public void checkVersion(Long expectedVersion, Long currentVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            preconditionFailures.increment();
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "La cita ha cambiado desde la versión " + expectedVersion + "; vuelva a cargarla");
+        }
+    }
+
+    // Espera breve con jitter para que los reintentos concurrentes no vuelvan a coincidir
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 10L * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "La cita ha sido modificada por otro usuario", e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("appointments.optimistic_lock")
+                .description("Escrituras de citas con bloqueo optimista por resultado")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
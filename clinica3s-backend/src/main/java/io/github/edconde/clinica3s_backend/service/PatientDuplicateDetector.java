@@ -0,0 +1,507 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.PatientDuplicateReport;
+import io.github.edconde.clinica3s_backend.event.PatientChangedEvent;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Detección de pacientes probablemente duplicados (el mismo paciente dado de alta dos veces con el nombre o
+ * el teléfono escritos de otra forma).
+ * <p>
+ * Comparar todas las parejas es cuadrático, así que solo se comparan los pacientes que comparten alguna
+ * clave de bloque: teléfono (últimos 9 dígitos), email, fecha de nacimiento o una de las {@value #BANDS}
+ * bandas de la firma MinHash de los trigramas del nombre normalizado, que agrupa con alta probabilidad los
+ * nombres parecidos. Cada clave se resuelve ordenando un array de longs (hash de la clave y posición del
+ * paciente) y recorriendo los tramos con el mismo hash; los bloques de más de {@code max-block-size}
+ * pacientes se descartan, de modo que el número de comparaciones crece linealmente con los pacientes.
+ * <p>
+ * Dentro de un bloque una pareja es candidata si la similitud Jaro-Winkler de los nombres (la mejor entre
+ * el nombre tal cual y con las palabras ordenadas) alcanza un umbral que depende de las coincidencias:
+ * teléfono o email suman 2, fecha de nacimiento o teléfono casi igual suman 1 y una fecha de nacimiento
+ * distinta resta 2. Con 3 o más basta 0.75, con 2 hace falta 0.85 y con 1, 0.92; sin coincidencias el
+ * nombre no basta.
+ * <p>
+ * Se ejecuta cada noche y a petición desde /api/patients/duplicates; el resultado se guarda en memoria hasta
+ * la siguiente ejecución, y al modificar o eliminar un paciente se retiran sus parejas.
+ */
+@Service
+@Slf4j
+public class PatientDuplicateDetector {
+
+    // Firma MinHash del nombre: BANDS bandas de ROWS funciones hash
+    static final int BANDS = 4;
+    private static final int ROWS = 4;
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(BANDS * ROWS).toArray();
+
+    // Clave de bloque empaquetada en un long: 40 bits de hash y 24 de posición del paciente
+    private static final int INDEX_BITS = 24;
+    static final int MAX_PATIENTS = 1 << INDEX_BITS;
+    private static final long INDEX_MASK = MAX_PATIENTS - 1;
+    private static final long NO_KEY = 0L;
+    private static final long NO_PHONE = -1L;
+    private static final long NO_BIRTH_DATE = Long.MIN_VALUE;
+
+    // "García López, María" se compara como "garcia lopez maria"
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_SIMILAR_PHONE_DIGITS = 6;
+    // Histograma de caracteres de cada nombre: a-z, espacio y el resto juntos
+    private static final int LETTERS = 28;
+    private static final double WINKLER_SCALE = 0.1;
+
+    private final PatientRepository patientRepository;
+    private final boolean enabled;
+    private final int maxBlockSize;
+    private final int maxCandidates;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile PatientDuplicateReport lastReport;
+
+    public PatientDuplicateDetector(PatientRepository patientRepository,
+                                    @Value("${application.patients.duplicates.enabled:true}") boolean enabled,
+                                    @Value("${application.patients.duplicates.max-block-size:100}") int maxBlockSize,
+                                    @Value("${application.patients.duplicates.max-candidates:1000}") int maxCandidates) {
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+        this.maxBlockSize = Math.max(2, maxBlockSize);
+        this.maxCandidates = Math.max(1, maxCandidates);
+    }
+
+    @Scheduled(cron = "${application.patients.duplicates.cron:0 0 4 * * *}")
+    public void scheduledScan() {
+        if (enabled && !running.get()) {
+            scan();
+        }
+    }
+
+    /**
+     * Busca duplicados entre todos los pacientes y guarda el resultado como el último informe.
+     */
+    public PatientDuplicateReport scan() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "La detección de duplicados ya está en curso");
+        }
+        try {
+            PatientDuplicateReport report = detect(patientRepository.findDuplicateEntries());
+            lastReport = report;
+            log.info("Detección de duplicados: {} pacientes, {} comparaciones, {} parejas candidatas en {} ms",
+                    report.getPatientsScanned(), report.getComparisons(), report.getTotalCandidates(),
+                    report.getDurationMillis());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // El último informe, o uno nuevo si aún no se ha ejecutado
+    public PatientDuplicateReport getReport() {
+        PatientDuplicateReport report = lastReport;
+        return report != null ? report : scan();
+    }
+
+    // Un paciente modificado puede haber dejado de ser duplicado; si lo sigue siendo vuelve en la siguiente ejecución
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onPatientChanged(PatientChangedEvent event) {
+        PatientDuplicateReport report = lastReport;
+        if (report == null || event.type() == PatientChangedEvent.Type.CREATED || event.patientId() == null) {
+            return;
+        }
+        Long id = event.patientId();
+        List<PatientDuplicateReport.Candidate> remaining = report.getCandidates().stream()
+                .filter(candidate -> !candidate.getFirst().getId().equals(id) && !candidate.getSecond().getId().equals(id))
+                .toList();
+        if (remaining.size() != report.getCandidates().size()) {
+            lastReport = PatientDuplicateReport.builder()
+                    .generatedAt(report.getGeneratedAt())
+                    .durationMillis(report.getDurationMillis())
+                    .patientsScanned(report.getPatientsScanned())
+                    .comparisons(report.getComparisons())
+                    .skippedBlocks(report.getSkippedBlocks())
+                    .totalCandidates(report.getTotalCandidates() - (report.getCandidates().size() - remaining.size()))
+                    .candidates(remaining)
+                    .build();
+        }
+    }
+
+    PatientDuplicateReport detect(List<? extends PatientRepository.DuplicateEntry> patients) {
+        if (patients.size() > MAX_PATIENTS) {
+            throw new IllegalStateException("Demasiados pacientes para la detección de duplicados: " + patients.size());
+        }
+        long start = System.nanoTime();
+        Profiles profiles = new Profiles(patients);
+        Pairs pairs = new Pairs(profiles);
+        block(profiles.phoneHashes, pairs);
+        block(profiles.emailHashes, pairs);
+        block(profiles.birthDateHashes, pairs);
+        for (long[] band : profiles.bandHashes) {
+            block(band, pairs);
+        }
+
+        List<Found> found = new ArrayList<>(pairs.found.values());
+        found.sort(Comparator.comparingInt(Found::weight).reversed()
+                .thenComparing(Comparator.comparingDouble(Found::similarity).reversed())
+                .thenComparing(pair -> profiles.entries[pair.first()].getId()));
+        List<PatientDuplicateReport.Candidate> candidates = found.stream()
+                .limit(maxCandidates)
+                .map(pair -> toCandidate(profiles, pair))
+                .toList();
+        return PatientDuplicateReport.builder()
+                .generatedAt(LocalDateTime.now())
+                .durationMillis((System.nanoTime() - start) / 1_000_000)
+                .patientsScanned(patients.size())
+                .comparisons(pairs.comparisons)
+                .skippedBlocks(pairs.skippedBlocks)
+                .totalCandidates(found.size())
+                .candidates(candidates)
+                .build();
+    }
+
+    // Compara las parejas de cada tramo de pacientes con el mismo hash de clave
+    private void block(long[] keys, Pairs pairs) {
+        long[] packed = new long[keys.length];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != NO_KEY) {
+                packed[size++] = keys[i] | i;
+            }
+        }
+        Arrays.sort(packed, 0, size);
+
+        int from = 0;
+        while (from < size) {
+            long hash = packed[from] & ~INDEX_MASK;
+            int to = from + 1;
+            while (to < size && (packed[to] & ~INDEX_MASK) == hash) {
+                to++;
+            }
+            if (to - from > maxBlockSize) {
+                pairs.skippedBlocks++;
+            } else {
+                for (int a = from; a < to; a++) {
+                    for (int b = a + 1; b < to; b++) {
+                        pairs.compare((int) (packed[a] & INDEX_MASK), (int) (packed[b] & INDEX_MASK));
+                    }
+                }
+            }
+            from = to;
+        }
+    }
+
+    private static PatientDuplicateReport.Candidate toCandidate(Profiles profiles, Found pair) {
+        return PatientDuplicateReport.Candidate.builder()
+                .first(toInfo(profiles.entries[pair.first()]))
+                .second(toInfo(profiles.entries[pair.second()]))
+                .nameSimilarity(Math.round(pair.similarity() * 1000) / 1000.0)
+                .matchedOn(pair.matches())
+                .build();
+    }
+
+    private static PatientDuplicateReport.PatientInfo toInfo(PatientRepository.DuplicateEntry entry) {
+        return PatientDuplicateReport.PatientInfo.builder()
+                .id(entry.getId())
+                .name(entry.getName())
+                .phone(entry.getPhone())
+                .email(entry.getEmail())
+                .birthDate(entry.getBirthDate())
+                .build();
+    }
+
+    /**
+     * Evalúa la pareja (a, b), con a < b: null si no es candidata. Las coincidencias se cuentan sobre los
+     * arrays de primitivos antes de comparar los nombres, así que la mayoría de las parejas de un bloque se
+     * descartan sin calcular la similitud ni reservar memoria.
+     */
+    static Found evaluate(Profiles profiles, int a, int b) {
+        boolean samePhone = profiles.phones[a] != NO_PHONE && profiles.phones[a] == profiles.phones[b]
+                && profiles.phoneDigits[a] == profiles.phoneDigits[b];
+        boolean similarPhone = !samePhone && profiles.phones[a] != NO_PHONE && profiles.phones[b] != NO_PHONE
+                && profiles.phoneDigits[a] == profiles.phoneDigits[b] && profiles.phoneDigits[a] >= MIN_SIMILAR_PHONE_DIGITS
+                && similarPhones(profiles.phones[a], profiles.phones[b]);
+        boolean sameEmail = profiles.emailHashes[a] != NO_KEY && profiles.emailHashes[a] == profiles.emailHashes[b]
+                && profiles.emailKeys[a].equals(profiles.emailKeys[b]);
+        boolean bothBirthDates = profiles.birthDays[a] != NO_BIRTH_DATE && profiles.birthDays[b] != NO_BIRTH_DATE;
+        boolean sameBirthDate = bothBirthDates && profiles.birthDays[a] == profiles.birthDays[b];
+        int weight = (samePhone ? 2 : 0) + (similarPhone ? 1 : 0) + (sameEmail ? 2 : 0)
+                + (sameBirthDate ? 1 : bothBirthDates ? -2 : 0);
+        if (weight <= 0) {
+            return null;
+        }
+        double threshold = weight >= 3 ? 0.75 : weight == 2 ? 0.85 : 0.92;
+        if (similarityUpperBound(profiles, a, b) < threshold) {
+            return null;
+        }
+        double similarity = Math.max(jaroWinkler(profiles.names[a], profiles.names[b]),
+                jaroWinkler(profiles.sortedNames[a], profiles.sortedNames[b]));
+        if (similarity < threshold) {
+            return null;
+        }
+
+        List<PatientDuplicateReport.Match> matches = new ArrayList<>(3);
+        if (samePhone) {
+            matches.add(PatientDuplicateReport.Match.PHONE);
+        }
+        if (similarPhone) {
+            matches.add(PatientDuplicateReport.Match.SIMILAR_PHONE);
+        }
+        if (sameEmail) {
+            matches.add(PatientDuplicateReport.Match.EMAIL);
+        }
+        if (sameBirthDate) {
+            matches.add(PatientDuplicateReport.Match.BIRTH_DATE);
+        }
+        return new Found(a, b, weight, similarity, matches);
+    }
+
+    /**
+     * Cota superior de la similitud Jaro-Winkler de los nombres de a y b (sirve también con las palabras
+     * ordenadas): los caracteres que coinciden no pueden ser más que los que tienen en común sin tener en
+     * cuenta su posición, y con m coincidencias Jaro no pasa de (m/|a| + m/|b| + 1) / 3. Es una suma sobre
+     * los histogramas, mucho más barata que Jaro-Winkler, y descarta casi todas las parejas de un bloque de
+     * fecha de nacimiento.
+     */
+    static double similarityUpperBound(Profiles profiles, int a, int b) {
+        int lengthA = profiles.names[a].length();
+        int lengthB = profiles.names[b].length();
+        if (lengthA == 0 || lengthB == 0) {
+            return 0.0;
+        }
+        int common = 0;
+        for (int c = 0, offsetA = a * LETTERS, offsetB = b * LETTERS; c < LETTERS; c++) {
+            common += Math.min(profiles.letters[offsetA + c] & 0xFF, profiles.letters[offsetB + c] & 0xFF);
+        }
+        double jaro = ((double) common / lengthA + (double) common / lengthB + 1.0) / 3.0;
+        return jaro + 4 * WINKLER_SCALE * (1.0 - jaro);
+    }
+
+    // Teléfonos con el mismo número de dígitos que difieren en uno o en dos contiguos intercambiados
+    static boolean similarPhones(long a, long b) {
+        int differences = 0;
+        int firstPosition = -1;
+        long firstA = 0;
+        long firstB = 0;
+        boolean transposed = false;
+        for (int position = 0; a != b; position++, a /= 10, b /= 10) {
+            long digitA = a % 10;
+            long digitB = b % 10;
+            if (digitA == digitB) {
+                continue;
+            }
+            if (++differences == 1) {
+                firstPosition = position;
+                firstA = digitA;
+                firstB = digitB;
+            } else if (differences == 2) {
+                transposed = position == firstPosition + 1 && digitA == firstB && digitB == firstA;
+            } else {
+                return false;
+            }
+        }
+        return differences == 1 || (differences == 2 && transposed);
+    }
+
+    static double jaroWinkler(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        if (a.equals(b)) {
+            return 1.0;
+        }
+        int window = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] matchedA = new boolean[a.length()];
+        boolean[] matchedB = new boolean[b.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(b.length(), i + window + 1);
+            for (int j = from; j < to; j++) {
+                if (!matchedB[j] && a.charAt(i) == b.charAt(j)) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (matchedA[i]) {
+                while (!matchedB[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3.0;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * WINKLER_SCALE * (1.0 - jaro);
+    }
+
+    private static int letter(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        return c == ' ' ? 26 : 27;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Hash de 40 bits en la parte alta del long (la baja queda para la posición del paciente)
+    private static long key(long hash) {
+        long key = mix(hash) & ~INDEX_MASK;
+        return key != NO_KEY ? key : INDEX_MASK + 1;
+    }
+
+    private static long key(String value) {
+        if (value == null) {
+            return NO_KEY;
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return key(hash);
+    }
+
+    // Mínimo de cada función hash sobre los trigramas del nombre (con un espacio a cada lado) y hash de cada banda
+    private static long[] minHashBands(String name) {
+        long[] hashes = new long[BANDS];
+        if (name.isEmpty()) {
+            return hashes;
+        }
+        long[] minimums = new long[BANDS * ROWS];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        String padded = " " + name + " ";
+        for (int p = 0; p + 3 <= padded.length(); p++) {
+            long trigram = ((long) padded.charAt(p) << 32) | ((long) padded.charAt(p + 1) << 16) | padded.charAt(p + 2);
+            for (int h = 0; h < minimums.length; h++) {
+                minimums[h] = Math.min(minimums[h], mix(trigram ^ SEEDS[h]));
+            }
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + minimums[band * ROWS + row]);
+            }
+            hashes[band] = key(hash);
+        }
+        return hashes;
+    }
+
+    record Found(int first, int second, int weight, double similarity, List<PatientDuplicateReport.Match> matches) {
+    }
+
+    /**
+     * Datos normalizados de los pacientes en arrays paralelos por posición: las comparaciones leen primitivos
+     * contiguos y solo llegan a los nombres cuando las coincidencias ya permiten que la pareja sea candidata.
+     * Las claves de bloque valen NO_KEY cuando el paciente no tiene el dato.
+     */
+    static final class Profiles {
+        final PatientRepository.DuplicateEntry[] entries;
+        final String[] names;
+        final String[] sortedNames;
+        // LETTERS contadores por paciente; un contador no pasa de 255 porque los nombres tampoco
+        final byte[] letters;
+        // Últimos 9 dígitos del teléfono como número, y cuántos dígitos son (los ceros a la izquierda cuentan)
+        final long[] phones;
+        final int[] phoneDigits;
+        final String[] emailKeys;
+        final long[] birthDays;
+        final long[] phoneHashes;
+        final long[] emailHashes;
+        final long[] birthDateHashes;
+        final long[][] bandHashes = new long[BANDS][];
+
+        Profiles(List<? extends PatientRepository.DuplicateEntry> patients) {
+            int n = patients.size();
+            entries = patients.toArray(new PatientRepository.DuplicateEntry[0]);
+            names = new String[n];
+            sortedNames = new String[n];
+            letters = new byte[n * LETTERS];
+            phones = new long[n];
+            phoneDigits = new int[n];
+            emailKeys = new String[n];
+            birthDays = new long[n];
+            phoneHashes = new long[n];
+            emailHashes = new long[n];
+            birthDateHashes = new long[n];
+            for (int band = 0; band < BANDS; band++) {
+                bandHashes[band] = new long[n];
+            }
+
+            for (int i = 0; i < n; i++) {
+                PatientRepository.DuplicateEntry entry = entries[i];
+                String name = PUNCTUATION.matcher(PatientSearchIndex.normalize(entry.getName())).replaceAll(" ").trim();
+                String[] tokens = name.split(" ");
+                Arrays.sort(tokens);
+                names[i] = name;
+                sortedNames[i] = String.join(" ", tokens);
+                for (int c = 0; c < name.length(); c++) {
+                    letters[i * LETTERS + letter(name.charAt(c))]++;
+                }
+
+                String phoneKey = PatientImportService.phoneKey(entry.getPhone());
+                phones[i] = phoneKey.isEmpty() ? NO_PHONE : Long.parseLong(phoneKey);
+                phoneDigits[i] = phoneKey.length();
+                phoneHashes[i] = phoneKey.isEmpty() ? NO_KEY : key(phoneKey);
+
+                emailKeys[i] = PatientImportService.emailKey(entry.getEmail());
+                emailHashes[i] = key(emailKeys[i]);
+
+                LocalDate birthDate = entry.getBirthDate();
+                birthDays[i] = birthDate != null ? birthDate.toEpochDay() : NO_BIRTH_DATE;
+                birthDateHashes[i] = birthDate != null ? key(birthDate.toEpochDay()) : NO_KEY;
+
+                long[] bands = minHashBands(sortedNames[i]);
+                for (int band = 0; band < BANDS; band++) {
+                    bandHashes[band][i] = bands[band];
+                }
+            }
+        }
+    }
+
+    // Parejas aceptadas (una vez aunque compartan varios bloques) y contadores de la ejecución
+    private static final class Pairs {
+        private final Profiles profiles;
+        private final Map<Long, Found> found = new HashMap<>();
+        private long comparisons;
+        private int skippedBlocks;
+
+        Pairs(Profiles profiles) {
+            this.profiles = profiles;
+        }
+
+        void compare(int first, int second) {
+            comparisons++;
+            Found candidate = evaluate(profiles, first, second);
+            if (candidate != null) {
+                found.putIfAbsent(((long) first << 32) | second, candidate);
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.edconde.clinica3s_backend.dto.PatientImportProgress;
+import io.github.edconde.clinica3s_backend.entity.Patient;
+import io.github.edconde.clinica3s_backend.event.PatientChangedEvent;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Importación masiva de pacientes desde CSV (con cabecera, separado por comas o punto y coma) o NDJSON.
+ * <ul>
+ *   <li>La entrada se lee fila a fila: en memoria solo está el bloque pendiente de guardar.</li>
+ *   <li>Los duplicados se detectan con un índice hash en memoria de teléfonos (últimos 9 dígitos) y emails
+ *       (en minúsculas) de los pacientes existentes, al que se añaden las filas aceptadas, así que también
+ *       se detectan los repetidos dentro del propio fichero.</li>
+ *   <li>Las filas válidas se guardan en bloques, cada uno en su transacción y con los INSERT agrupados en
+ *       lotes JDBC (secuencia pooled de pacientes). Si un bloque falla se rechazan sus filas y se sigue.</li>
+ * </ul>
+ * Rechazos, duplicados y progreso se notifican según se producen. Al terminar se recargan los índices de
+ * búsqueda y sugerencias de pacientes.
+ */
+@Service
+@Slf4j
+public class PatientImportService {
+
+    private static final int MAX_LENGTH = 255;
+    private static final int MIN_PHONE_DIGITS = 6;
+    private static final int NATIONAL_DIGITS = 9;
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    // Nombres de columna (CSV) y de campo (NDJSON) admitidos para cada dato
+    private static final Map<String, String> FIELD_ALIASES = Map.ofEntries(
+            Map.entry("name", "name"), Map.entry("nombre", "name"),
+            Map.entry("phone", "phone"), Map.entry("telefono", "phone"),
+            Map.entry("email", "email"),
+            Map.entry("birthdate", "birthDate"), Map.entry("birth_date", "birthDate"),
+            Map.entry("fecha_nacimiento", "birthDate"),
+            Map.entry("gender", "gender"), Map.entry("genero", "gender"));
+
+    private final PatientRepository patientRepository;
+    private final PatientSearchIndex patientSearchIndex;
+    private final PatientSuggestIndex patientSuggestIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public PatientImportService(PatientRepository patientRepository,
+                                PatientSearchIndex patientSearchIndex,
+                                PatientSuggestIndex patientSuggestIndex,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${application.patients.import.chunk-size:1000}") int chunkSize) {
+        this.patientRepository = patientRepository;
+        this.patientSearchIndex = patientSearchIndex;
+        this.patientSuggestIndex = patientSuggestIndex;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Importa los pacientes de {@code input} y escribe en {@code output} una línea NDJSON por rechazo,
+     * duplicado y bloque guardado, más el resumen final. Las líneas de progreso se envían al cliente según
+     * se generan. Ninguno de los dos streams se cierra.
+     */
+    public void importPatients(InputStream input, Format format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 16 * 1024);
+        importPatients(input, format, progress -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(progress));
+                writer.write('\n');
+                if (progress.getType() == PatientImportProgress.Type.PROGRESS
+                        || progress.getType() == PatientImportProgress.Type.COMPLETED) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Importa los pacientes de {@code input} (UTF-8) y devuelve el resumen final, que también se notifica a
+     * {@code listener} junto con cada rechazo, duplicado y bloque guardado. El stream no se cierra.
+     */
+    public PatientImportProgress importPatients(InputStream input, Format format,
+                                                Consumer<PatientImportProgress> listener) throws IOException {
+        Run run = new Run(listener);
+        for (PatientRepository.SearchEntry existing : patientRepository.findSearchEntries()) {
+            run.addKeys(phoneKey(existing.getPhone()), emailKey(existing.getEmail()));
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        run.flush();
+
+        if (run.imported > 0) {
+            patientSearchIndex.load();
+            patientSuggestIndex.load();
+            eventPublisher.publishEvent(new PatientChangedEvent(PatientChangedEvent.Type.CREATED, null));
+        }
+        PatientImportProgress summary = run.progress(PatientImportProgress.Type.COMPLETED);
+        listener.accept(summary);
+        log.info("Importación de pacientes: {} filas, {} importadas, {} duplicadas, {} rechazadas",
+                run.processed, run.imported, run.duplicates, run.rejected);
+        return summary;
+    }
+
+    private void readCsv(BufferedReader reader, Run run) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return;
+        }
+        // Excel en español exporta con punto y coma
+        char separator = headerLine.indexOf(',') < 0 && headerLine.indexOf(';') >= 0 ? ';' : ',';
+        String[] header = headerLine.split(Pattern.quote(String.valueOf(separator)), -1);
+        String[] columns = new String[header.length];
+        for (int i = 0; i < header.length; i++) {
+            String column = header[i].replace("\uFEFF", "").replace("\"", "").trim().toLowerCase(Locale.ROOT);
+            columns[i] = FIELD_ALIASES.get(column);
+        }
+        if (!Arrays.asList(columns).contains("name") || !Arrays.asList(columns).contains("phone")) {
+            run.reject(0, "La cabecera debe incluir las columnas name y phone");
+            return;
+        }
+
+        CsvReader csv = new CsvReader(reader, separator);
+        List<String> values;
+        while ((values = csv.next()) != null) {
+            if (values.size() == 1 && values.get(0).isBlank()) {
+                continue;
+            }
+            long row = ++run.processed;
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < Math.min(columns.length, values.size()); i++) {
+                if (columns[i] != null) {
+                    fields.put(columns[i], values.get(i));
+                }
+            }
+            accept(row, fields, run);
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Run run) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            long row = ++run.processed;
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                run.reject(row, "JSON no válido");
+                continue;
+            }
+            if (node == null || !node.isObject()) {
+                run.reject(row, "Se esperaba un objeto JSON por línea");
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                String name = FIELD_ALIASES.get(field.getKey().toLowerCase(Locale.ROOT));
+                if (name != null && !field.getValue().isNull()) {
+                    fields.put(name, field.getValue().asText());
+                }
+            });
+            accept(row, fields, run);
+        }
+    }
+
+    private void accept(long row, Map<String, String> fields, Run run) {
+        String name = trimToNull(fields.get("name"));
+        String phone = trimToNull(fields.get("phone"));
+        String email = trimToNull(fields.get("email"));
+        String gender = trimToNull(fields.get("gender"));
+        String birthDateText = trimToNull(fields.get("birthDate"));
+
+        String error = validate(name, phone, email, gender);
+        LocalDate birthDate = null;
+        if (error == null && birthDateText != null) {
+            try {
+                birthDate = LocalDate.parse(birthDateText);
+                if (birthDate.isAfter(LocalDate.now())) {
+                    error = "La fecha de nacimiento no puede ser futura";
+                }
+            } catch (DateTimeParseException e) {
+                error = "Fecha de nacimiento no válida (formato yyyy-MM-dd)";
+            }
+        }
+        if (error != null) {
+            run.reject(row, error);
+            return;
+        }
+
+        String phoneKey = phoneKey(phone);
+        String emailKey = emailKey(email);
+        if (run.phones.contains(phoneKey)) {
+            run.duplicate(row, "Ya existe un paciente con el teléfono " + phone);
+            return;
+        }
+        if (emailKey != null && run.emails.contains(emailKey)) {
+            run.duplicate(row, "Ya existe un paciente con el email " + email);
+            return;
+        }
+
+        run.addKeys(phoneKey, emailKey);
+        run.chunk.add(new PendingRow(row, phoneKey, emailKey, Patient.builder()
+                .name(name)
+                .phone(phone)
+                .email(email)
+                .birthDate(birthDate)
+                .gender(gender)
+                .build()));
+        if (run.chunk.size() >= chunkSize) {
+            run.flush();
+        }
+    }
+
+    private static String validate(String name, String phone, String email, String gender) {
+        if (name == null) {
+            return "El nombre es obligatorio";
+        }
+        if (phone == null) {
+            return "El teléfono es obligatorio";
+        }
+        if (PatientSearchIndex.digits(phone).length() < MIN_PHONE_DIGITS) {
+            return "Teléfono no válido";
+        }
+        if (email != null && !EMAIL.matcher(email).matches()) {
+            return "Email no válido";
+        }
+        for (String value : new String[]{name, phone, email, gender}) {
+            if (value != null && value.length() > MAX_LENGTH) {
+                return "Campo de más de " + MAX_LENGTH + " caracteres";
+            }
+        }
+        return null;
+    }
+
+    // Mismo teléfono con o sin prefijo internacional y con cualquier separador
+    static String phoneKey(String phone) {
+        String digits = PatientSearchIndex.digits(phone);
+        return digits.length() > NATIONAL_DIGITS ? digits.substring(digits.length() - NATIONAL_DIGITS) : digits;
+    }
+
+    static String emailKey(String email) {
+        return email == null || email.isBlank() ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private record PendingRow(long row, String phoneKey, String emailKey, Patient patient) {
+    }
+
+    /**
+     * Estado de una importación: índice de duplicados, bloque pendiente y contadores.
+     */
+    private final class Run {
+        private final Consumer<PatientImportProgress> listener;
+        private final Set<String> phones = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private final List<PendingRow> chunk = new ArrayList<>();
+        private long processed;
+        private long imported;
+        private long duplicates;
+        private long rejected;
+
+        Run(Consumer<PatientImportProgress> listener) {
+            this.listener = listener;
+        }
+
+        void addKeys(String phoneKey, String emailKey) {
+            if (phoneKey != null && !phoneKey.isEmpty()) {
+                phones.add(phoneKey);
+            }
+            if (emailKey != null) {
+                emails.add(emailKey);
+            }
+        }
+
+        void reject(long row, String reason) {
+            rejected++;
+            listener.accept(PatientImportProgress.builder()
+                    .type(PatientImportProgress.Type.REJECTED).row(row).reason(reason).build());
+        }
+
+        void duplicate(long row, String reason) {
+            duplicates++;
+            listener.accept(PatientImportProgress.builder()
+                    .type(PatientImportProgress.Type.DUPLICATE).row(row).reason(reason).build());
+        }
+
+        // Guarda el bloque pendiente en su propia transacción y vacía el contexto de persistencia
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    chunk.forEach(pending -> entityManager.persist(pending.patient()));
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                imported += chunk.size();
+            } catch (RuntimeException e) {
+                log.warn("Bloque de importación de pacientes rechazado: {}", e.getMessage());
+                for (PendingRow pending : chunk) {
+                    // Las claves se liberan para no marcar como duplicadas filas posteriores
+                    phones.remove(pending.phoneKey());
+                    if (pending.emailKey() != null) {
+                        emails.remove(pending.emailKey());
+                    }
+                    reject(pending.row(), "Error al guardar el bloque de la fila");
+                }
+            }
+            chunk.clear();
+            listener.accept(progress(PatientImportProgress.Type.PROGRESS));
+        }
+
+        PatientImportProgress progress(PatientImportProgress.Type type) {
+            return PatientImportProgress.builder()
+                    .type(type)
+                    .processed(processed)
+                    .imported(imported)
+                    .duplicates(duplicates)
+                    .rejected(rejected)
+                    .build();
+        }
+    }
+
+    /**
+     * Lector CSV (RFC 4180) registro a registro: comillas dobles, comillas escapadas y saltos de línea
+     * dentro de campos entrecomillados.
+     */
+    private static final class CsvReader {
+        private final Reader reader;
+        private final char separator;
+
+        CsvReader(Reader reader, char separator) {
+            this.reader = reader;
+            this.separator = separator;
+        }
+
+        // Campos del siguiente registro, o null al final de la entrada
+        List<String> next() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                char ch = (char) c;
+                if (quoted) {
+                    if (ch != '"') {
+                        field.append(ch);
+                        continue;
+                    }
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else if (ch == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (ch == separator) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (ch == '\n') {
+                    break;
+                } else if (ch != '\r') {
+                    field.append(ch);
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
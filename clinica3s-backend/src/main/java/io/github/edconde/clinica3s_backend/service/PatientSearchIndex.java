@@ -0,0 +1,468 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.Patient;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de trigramas en memoria para la búsqueda de pacientes por nombre, email y teléfono,
+ * que sustituye a los LIKE '%x%' (sin índice posible) del listado.
+ * <ul>
+ *   <li>Nombre y email se normalizan a minúsculas y sin acentos ("Muñoz" se encuentra con "munoz"), y el
+ *       teléfono a sus dígitos ("+34 600-11" se encuentra con "3460011").</li>
+ *   <li>Cada paciente ocupa una posición y cada trigrama de cada campo guarda la lista ordenada de
+ *       posiciones que lo contienen. Una búsqueda de 3 o más caracteres interseca las listas de sus
+ *       trigramas y comprueba después la subcadena en los candidatos; con menos caracteres se recorren
+ *       los pacientes en memoria.</li>
+ *   <li>Con el orden por defecto los resultados se ordenan por relevancia: coincidencia exacta, luego al
+ *       principio del campo, luego al principio de una palabra, y a igualdad el campo más corto.</li>
+ * </ul>
+ * Se carga al arrancar y PatientService lo mantiene al día; los cambios se aplican tras el commit. Las
+ * bajas dejan la posición vacía y el índice se compacta cuando las vacías superan a las ocupadas.
+ * <p>
+ * Con {@code application.patients.search-index.enabled=false} el listado sigue consultando la base de datos.
+ */
+@Component
+@Slf4j
+public class PatientSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACT_HOLES = 1000;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Set<String> SORTABLE = Set.of("id", "name", "email", "phone");
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.ASC, "id");
+
+    private final PatientRepository patientRepository;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegido por lock
+    private List<Doc> docs = new ArrayList<>();
+    private Map<Long, Integer> positions = new HashMap<>();
+    private EnumMap<Field, Map<String, IntList>> postings = emptyPostings();
+    private int holes;
+    // Cambios recibidos durante una carga, que se vuelven a aplicar sobre el índice nuevo
+    private List<Runnable> pendingDuringLoad;
+
+    private volatile boolean ready;
+
+    public PatientSearchIndex(PatientRepository patientRepository,
+                              @Value("${application.patients.search-index.enabled:true}") boolean enabled) {
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<PatientRepository.SearchEntry> entries = patientRepository.findSearchEntries();
+
+        lock.writeLock().lock();
+        try {
+            reset();
+            for (PatientRepository.SearchEntry entry : entries) {
+                add(new Doc(entry.getId(), normalize(entry.getName()), normalize(entry.getEmail()), digits(entry.getPhone())));
+            }
+            pendingDuringLoad.forEach(Runnable::run);
+            pendingDuringLoad = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda de pacientes cargado ({} pacientes)", entries.size());
+    }
+
+    /**
+     * Indica si el índice puede resolver la búsqueda: está activo y cargado, hay algún filtro y el orden
+     * pedido es el de por defecto (relevancia) o uno de los campos indexados.
+     */
+    public boolean canServe(String name, String phone, String email, Sort sort) {
+        if (!enabled || !ready || (isBlank(name) && isBlank(phone) && isBlank(email))) {
+            return false;
+        }
+        return sort.stream().allMatch(order -> SORTABLE.contains(order.getProperty()));
+    }
+
+    /**
+     * Ids de los pacientes que contienen todos los filtros indicados, ordenados por relevancia con el orden
+     * por defecto (o sin orden) y por los campos pedidos en otro caso.
+     */
+    public List<Long> search(String name, String phone, String email, Sort sort) {
+        boolean ranked = sort.isUnsorted() || sort.equals(DEFAULT_SORT);
+        Query query = new Query(normalizeFilter(name), digitsFilter(phone), normalizeFilter(email));
+        List<Hit> hits = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (int position : match(query)) {
+                Doc doc = docs.get(position);
+                hits.add(ranked ? new Hit(doc, query.score(doc), query.length(doc)) : new Hit(doc, 0, 0));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(ranked ? RANKING : comparator(sort));
+        List<Long> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.doc().id()));
+        return ids;
+    }
+
+    public int count(String name, String phone, String email) {
+        Query query = new Query(normalizeFilter(name), digitsFilter(phone), normalizeFilter(email));
+        lock.readLock().lock();
+        try {
+            return match(query).length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Alta o modificación de un paciente ya guardado, visible tras el commit
+    void index(Patient patient) {
+        Doc doc = new Doc(patient.getId(), normalize(patient.getName()), normalize(patient.getEmail()), digits(patient.getPhone()));
+        // removeDoc y no remove: este código ya se ejecuta tras el commit, y una sincronización registrada
+        // desde afterCommit no llegaría a ejecutarse
+        afterCommit(() -> {
+            removeDoc(doc.id());
+            add(doc);
+        });
+    }
+
+    void remove(Long id) {
+        afterCommit(() -> removeDoc(id));
+    }
+
+    /**
+     * Minúsculas, sin acentos ni diacríticos y con los espacios colapsados. Null se normaliza a "".
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // Solo los dígitos del teléfono
+    public static String digits(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!enabled) {
+            return;
+        }
+        Runnable apply = () -> {
+            lock.writeLock().lock();
+            try {
+                change.run();
+                if (pendingDuringLoad != null) {
+                    pendingDuringLoad.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // Posiciones ocupadas que cumplen todos los filtros, en orden creciente
+    private int[] match(Query query) {
+        int[] candidates = null;
+        for (Field field : Field.values()) {
+            String value = query.value(field);
+            if (value == null) {
+                continue;
+            }
+            if (value.isEmpty()) {
+                // Filtro que se queda vacío al normalizar (un teléfono sin dígitos): no coincide nada
+                return new int[0];
+            }
+            if (value.length() >= GRAM) {
+                int[] grams = intersectGrams(field, value);
+                candidates = candidates == null ? grams : intersect(candidates, grams);
+            }
+        }
+
+        IntList matches = new IntList();
+        if (candidates == null) {
+            for (int position = 0; position < docs.size(); position++) {
+                if (docs.get(position) != null && query.matches(docs.get(position))) {
+                    matches.add(position);
+                }
+            }
+        } else {
+            for (int position : candidates) {
+                if (docs.get(position) != null && query.matches(docs.get(position))) {
+                    matches.add(position);
+                }
+            }
+        }
+        return matches.toArray();
+    }
+
+    private int[] intersectGrams(Field field, String value) {
+        Map<String, IntList> index = postings.get(field);
+        List<IntList> lists = new ArrayList<>();
+        for (String gram : grams(value)) {
+            IntList list = index.get(gram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        // De la lista más corta a la más larga para reducir los candidatos cuanto antes
+        lists.sort(Comparator.comparingInt(IntList::size));
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i).toArray());
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private void add(Doc doc) {
+        int position = docs.size();
+        docs.add(doc);
+        positions.put(doc.id(), position);
+        for (Field field : Field.values()) {
+            Map<String, IntList> index = postings.get(field);
+            for (String gram : grams(field.value(doc))) {
+                index.computeIfAbsent(gram, key -> new IntList()).add(position);
+            }
+        }
+    }
+
+    private void removeDoc(Long id) {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return;
+        }
+        docs.set(position, null);
+        holes++;
+        if (holes >= MIN_COMPACT_HOLES && holes > positions.size()) {
+            compact();
+        }
+    }
+
+    // Vuelve a numerar las posiciones ocupadas y descarta las listas de las posiciones vacías
+    private void compact() {
+        List<Doc> live = docs.stream().filter(Objects::nonNull).toList();
+        reset();
+        live.forEach(this::add);
+    }
+
+    private void reset() {
+        docs = new ArrayList<>();
+        positions = new HashMap<>();
+        postings = emptyPostings();
+        holes = 0;
+    }
+
+    // Trigramas distintos del valor (cada posición se añade una sola vez a cada lista)
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static EnumMap<Field, Map<String, IntList>> emptyPostings() {
+        EnumMap<Field, Map<String, IntList>> postings = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            postings.put(field, new HashMap<>());
+        }
+        return postings;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String normalizeFilter(String value) {
+        return isBlank(value) ? null : normalize(value);
+    }
+
+    private static String digitsFilter(String value) {
+        return isBlank(value) ? null : digits(value);
+    }
+
+    // 3: igual, 2: al principio, 1: al principio de una palabra, 0: en medio
+    private static int score(String value, String filter) {
+        if (value.equals(filter)) {
+            return 3;
+        }
+        if (value.startsWith(filter)) {
+            return 2;
+        }
+        for (int i = value.indexOf(filter); i > 0; i = value.indexOf(filter, i + 1)) {
+            if (!Character.isLetterOrDigit(value.charAt(i - 1))) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparingInt(Hit::length)
+            .thenComparing(hit -> hit.doc().id());
+
+    private static Comparator<Hit> comparator(Sort sort) {
+        Comparator<Hit> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Hit> next = switch (order.getProperty()) {
+                case "name" -> Comparator.comparing(hit -> hit.doc().name());
+                case "email" -> Comparator.comparing(hit -> hit.doc().email());
+                case "phone" -> Comparator.comparing(hit -> hit.doc().phone());
+                default -> Comparator.comparing(hit -> hit.doc().id());
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<Hit> byId = Comparator.comparing(hit -> hit.doc().id());
+        return comparator == null ? byId : comparator.thenComparing(byId);
+    }
+
+    private enum Field {
+        NAME, EMAIL, PHONE;
+
+        String value(Doc doc) {
+            return switch (this) {
+                case NAME -> doc.name();
+                case EMAIL -> doc.email();
+                case PHONE -> doc.phone();
+            };
+        }
+    }
+
+    private record Doc(Long id, String name, String email, String phone) {
+    }
+
+    private record Hit(Doc doc, int score, int length) {
+    }
+
+    // Filtros normalizados; null = sin filtro en ese campo
+    private record Query(String name, String phone, String email) {
+
+        String value(Field field) {
+            return switch (field) {
+                case NAME -> name;
+                case EMAIL -> email;
+                case PHONE -> phone;
+            };
+        }
+
+        boolean matches(Doc doc) {
+            for (Field field : Field.values()) {
+                String filter = value(field);
+                if (filter != null && !field.value(doc).contains(filter)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int score(Doc doc) {
+            int score = 0;
+            for (Field field : Field.values()) {
+                String filter = value(field);
+                if (filter != null) {
+                    score += PatientSearchIndex.score(field.value(doc), filter);
+                }
+            }
+            return score;
+        }
+
+        int length(Doc doc) {
+            int length = 0;
+            for (Field field : Field.values()) {
+                if (value(field) != null) {
+                    length += field.value(doc).length();
+                }
+            }
+            return length;
+        }
+    }
+
+    // Lista creciente de posiciones sin objetos por elemento
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,21 +1,39 @@
 package io.github.edconde.clinica3s_backend.service;
 
+import io.github.edconde.clinica3s_backend.dto.PatientSuggestion;
 import io.github.edconde.clinica3s_backend.entity.Patient;
+import io.github.edconde.clinica3s_backend.event.PatientChangedEvent;
 import io.github.edconde.clinica3s_backend.repository.PatientRepository;
 import io.github.edconde.clinica3s_backend.repository.PatientSpecifications;
+import io.github.edconde.clinica3s_backend.repository.SliceQueries;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PatientService {
 
     private final PatientRepository patientRepository;
+    private final AppointmentListView appointmentListView;
+    private final SliceQueries sliceQueries;
+    private final RowCountEstimator rowCountEstimator;
+    private final PatientSearchIndex patientSearchIndex;
+    private final PatientSuggestIndex patientSuggestIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Patient> findAll(Pageable pageable) {
         return patientRepository.findAll(pageable);
@@ -25,16 +43,54 @@ public class PatientService {
         return patientRepository.findAll();
     }
 
+    /**
+     * Con algún filtro y el índice de búsqueda cargado, los ids salen del índice (por relevancia con el orden
+     * por defecto) y solo se leen de la base de datos los pacientes de la página.
+     */
     public Page<Patient> findWithFilters(String name, String phone, String email, Pageable pageable) {
+        if (patientSearchIndex.canServe(name, phone, email, pageable.getSort())) {
+            List<Long> ids = patientSearchIndex.search(name, phone, email, pageable.getSort());
+            return new PageImpl<>(loadPage(ids, pageable), pageable, ids.size());
+        }
         var spec = PatientSpecifications.buildSpecification(name, phone, email);
         return patientRepository.findAll(spec, pageable);
     }
 
+    // Mismos filtros sin count(*), para pagination=slice
+    public Slice<Patient> findSliceWithFilters(String name, String phone, String email, Pageable pageable) {
+        if (patientSearchIndex.canServe(name, phone, email, pageable.getSort())) {
+            List<Long> ids = patientSearchIndex.search(name, phone, email, pageable.getSort());
+            boolean hasNext = pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() < ids.size();
+            return new SliceImpl<>(loadPage(ids, pageable), pageable, hasNext);
+        }
+        var spec = PatientSpecifications.buildSpecification(name, phone, email);
+        return sliceQueries.findSlice(Patient.class, spec, pageable);
+    }
+
+    public long estimateCount(String name, String phone, String email) {
+        // El índice da el total exacto sin consultar la base de datos
+        if (patientSearchIndex.canServe(name, phone, email, Sort.unsorted())) {
+            return patientSearchIndex.count(name, phone, email);
+        }
+        var spec = PatientSpecifications.buildSpecification(name, phone, email);
+        return rowCountEstimator.estimate("patient", RowCountEstimator.filterKey(name, phone, email), () -> patientRepository.count(spec));
+    }
+
+    public List<PatientSuggestion> suggest(String query, int limit) {
+        return patientSuggestIndex.suggest(query, limit);
+    }
+
     public Patient findById(Long id) {
         return patientRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Paciente no encontrado"));
     }
 
+    // Solo la versión, para responder a If-None-Match sin cargar el paciente
+    public Long findVersion(Long id) {
+        return patientRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Paciente no encontrado"));
+    }
+
     public Patient findByEmail(String email) {
         return patientRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Paciente no encontrado con email: " + email));
@@ -42,7 +98,11 @@ public class PatientService {
 
     @Transactional
     public Patient create(Patient patient) {
-        return patientRepository.save(patient);
+        Patient saved = patientRepository.save(patient);
+        patientSearchIndex.index(saved);
+        patientSuggestIndex.index(saved);
+        eventPublisher.publishEvent(new PatientChangedEvent(PatientChangedEvent.Type.CREATED, saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -53,7 +113,13 @@ public class PatientService {
         existing.setGender(patient.getGender());
         existing.setPhone(patient.getPhone());
         existing.setEmail(patient.getEmail());
-        return patientRepository.save(existing);
+        // Flush para propagar al listado de citas la versión ya incrementada
+        Patient saved = patientRepository.saveAndFlush(existing);
+        appointmentListView.updatePatient(saved);
+        patientSearchIndex.index(saved);
+        patientSuggestIndex.index(saved);
+        eventPublisher.publishEvent(new PatientChangedEvent(PatientChangedEvent.Type.UPDATED, saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -62,5 +128,20 @@ public class PatientService {
             throw new RuntimeException("Paciente no encontrado");
         }
         patientRepository.deleteById(id);
+        patientSearchIndex.remove(id);
+        patientSuggestIndex.remove(id);
+        eventPublisher.publishEvent(new PatientChangedEvent(PatientChangedEvent.Type.DELETED, id));
+    }
+
+    // Pacientes de la página en el orden de los ids (los borrados entre la búsqueda y la carga se omiten)
+    private List<Patient> loadPage(List<Long> ids, Pageable pageable) {
+        List<Long> pageIds = ids;
+        if (pageable.isPaged()) {
+            int from = (int) Math.min(pageable.getOffset(), ids.size());
+            pageIds = ids.subList(from, Math.min(from + pageable.getPageSize(), ids.size()));
+        }
+        Map<Long, Patient> byId = patientRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Patient::getId, Function.identity()));
+        return pageIds.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
 }
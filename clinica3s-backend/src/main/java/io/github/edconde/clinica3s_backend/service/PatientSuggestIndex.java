@@ -0,0 +1,287 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.PatientSuggestion;
+import io.github.edconde.clinica3s_backend.entity.Patient;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de prefijos para el autocompletado de pacientes (/api/patients/suggest).
+ * <p>
+ * Cada paciente aporta como términos las palabras de su nombre normalizado (sin acentos, en minúsculas) y
+ * los dígitos de su teléfono, también sin el prefijo internacional. Los términos de todos los pacientes
+ * se guardan en un array ordenado junto a la posición del paciente, así que una consulta es una búsqueda
+ * binaria del prefijo y un recorrido secuencial de las entradas que empiezan por él, en orden alfabético.
+ * El recorrido se corta al reunir las sugerencias pedidas o tras {@value #MAX_SCAN} entradas, lo que
+ * acota la latencia de los prefijos muy frecuentes.
+ * <p>
+ * Con varias palabras se busca por la más larga y se exige que cada una sea prefijo de algún término del
+ * paciente ("ana gar" encuentra "Ana María García").
+ * <p>
+ * El array es inmutable: las altas, cambios y bajas posteriores a su construcción se guardan (tras el
+ * commit) en un mapa que tiene prioridad sobre él, y al superar {@value #MAX_OVERLAY} cambios se vuelve a
+ * construir en memoria.
+ */
+@Component
+@Slf4j
+public class PatientSuggestIndex {
+
+    public static final int MAX_LIMIT = 50;
+    static final int MAX_SCAN = 2000;
+    private static final int MAX_OVERLAY = 500;
+    // Longitud de un teléfono nacional: "+34 600 111 222" también se encuentra por "600111222"
+    private static final int NATIONAL_DIGITS = 9;
+    private static final Entry REMOVED = new Entry(null, null, null, new String[0]);
+
+    private final PatientRepository patientRepository;
+    private final ConcurrentHashMap<Long, Entry> overlay = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    public PatientSuggestIndex(PatientRepository patientRepository) {
+        this.patientRepository = patientRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<PatientRepository.SearchEntry> patients = patientRepository.findSearchEntries();
+        replace(patients);
+        log.info("Índice de sugerencias de pacientes cargado ({} pacientes, {} términos)",
+                patients.size(), snapshot.keys().length);
+    }
+
+    // Los cambios que ya estén en el mapa se conservan: son tan recientes o más que la carga
+    synchronized void replace(Collection<? extends PatientRepository.SearchEntry> patients) {
+        List<Entry> entries = new ArrayList<>(patients.size());
+        for (PatientRepository.SearchEntry patient : patients) {
+            entries.add(Entry.of(patient.getId(), patient.getName(), patient.getPhone()));
+        }
+        snapshot = Snapshot.build(entries);
+    }
+
+    /**
+     * Hasta {@code limit} pacientes (como mucho {@value #MAX_LIMIT}) con un término que empieza por la
+     * consulta, en orden alfabético del término. Una consulta con dígitos y sin letras busca por teléfono.
+     */
+    public List<PatientSuggestion> suggest(String query, int limit) {
+        String normalized = PatientSearchIndex.normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        String[] terms = isPhoneQuery(normalized)
+                ? new String[]{PatientSearchIndex.digits(normalized)}
+                : normalized.split(" ");
+        String probe = terms[0];
+        for (String term : terms) {
+            if (term.length() > probe.length()) {
+                probe = term;
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(k);
+        Snapshot current = snapshot;
+        String[] keys = current.keys();
+        int start = lowerBound(keys, probe);
+        int end = Math.min(keys.length, start + MAX_SCAN);
+        for (int i = start; i < end && matches.size() < k && keys[i].startsWith(probe); i++) {
+            Entry entry = current.entries()[current.refs()[i]];
+            if (!overlay.containsKey(entry.id()) && entry.matches(terms) && !contains(matches, entry.id())) {
+                matches.add(new Match(keys[i], entry));
+            }
+        }
+
+        if (!overlay.isEmpty()) {
+            mergeOverlay(matches, probe, terms, k);
+        }
+
+        List<PatientSuggestion> suggestions = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            suggestions.add(new PatientSuggestion(match.entry().id(), match.entry().name(), match.entry().phone()));
+        }
+        return suggestions;
+    }
+
+    // Alta o modificación de un paciente ya guardado, visible tras el commit
+    void index(Patient patient) {
+        Entry entry = Entry.of(patient.getId(), patient.getName(), patient.getPhone());
+        afterCommit(() -> apply(entry.id(), entry));
+    }
+
+    void remove(Long id) {
+        afterCommit(() -> apply(id, REMOVED));
+    }
+
+    private synchronized void apply(Long id, Entry entry) {
+        overlay.put(id, entry);
+        if (overlay.size() > MAX_OVERLAY) {
+            compact();
+        }
+    }
+
+    // Incorpora los cambios al array ordenado; se quitan del mapa después de publicar el array nuevo
+    private void compact() {
+        Map<Long, Entry> folded = new HashMap<>(overlay);
+        List<Entry> entries = new ArrayList<>(snapshot.entries().length + folded.size());
+        for (Entry entry : snapshot.entries()) {
+            if (!folded.containsKey(entry.id())) {
+                entries.add(entry);
+            }
+        }
+        for (Entry entry : folded.values()) {
+            if (entry != REMOVED) {
+                entries.add(entry);
+            }
+        }
+        snapshot = Snapshot.build(entries);
+        folded.forEach(overlay::remove);
+    }
+
+    private void mergeOverlay(List<Match> matches, String probe, String[] terms, int k) {
+        boolean added = false;
+        for (Entry entry : overlay.values()) {
+            if (entry == REMOVED || !entry.matches(terms)) {
+                continue;
+            }
+            String key = entry.firstKeyStartingWith(probe);
+            if (key != null && !contains(matches, entry.id())) {
+                matches.add(new Match(key, entry));
+                added = true;
+            }
+        }
+        if (added) {
+            matches.sort(Comparator.comparing(Match::key));
+            while (matches.size() > k) {
+                matches.remove(matches.size() - 1);
+            }
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static boolean isPhoneQuery(String normalized) {
+        boolean digit = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetter(c)) {
+                return false;
+            }
+            digit |= c >= '0' && c <= '9';
+        }
+        return digit;
+    }
+
+    // Primera posición cuya clave es >= prefix
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean contains(List<Match> matches, Long id) {
+        for (Match match : matches) {
+            if (match.entry().id().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Match(String key, Entry entry) {
+    }
+
+    private record Entry(Long id, String name, String phone, String[] keys) {
+
+        static Entry of(Long id, String name, String phone) {
+            Set<String> keys = new LinkedHashSet<>();
+            for (String token : PatientSearchIndex.normalize(name).split(" ")) {
+                if (!token.isEmpty()) {
+                    keys.add(token);
+                }
+            }
+            String digits = PatientSearchIndex.digits(phone);
+            if (!digits.isEmpty()) {
+                keys.add(digits);
+                if (digits.length() > NATIONAL_DIGITS) {
+                    keys.add(digits.substring(digits.length() - NATIONAL_DIGITS));
+                }
+            }
+            return new Entry(id, name, phone, keys.toArray(new String[0]));
+        }
+
+        // Cada término de la consulta es prefijo de algún término del paciente
+        boolean matches(String[] terms) {
+            for (String term : terms) {
+                if (firstKeyStartingWith(term) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String firstKeyStartingWith(String prefix) {
+            String first = null;
+            for (String key : keys) {
+                if (key.startsWith(prefix) && (first == null || key.compareTo(first) < 0)) {
+                    first = key;
+                }
+            }
+            return first;
+        }
+    }
+
+    /**
+     * Términos ordenados ({@code keys}) y, para cada uno, la posición de su paciente en {@code entries}.
+     */
+    private record Snapshot(Entry[] entries, String[] keys, int[] refs) {
+
+        static Snapshot build(List<Entry> source) {
+            Entry[] entries = source.toArray(new Entry[0]);
+            List<Match> postings = new ArrayList<>();
+            for (Entry entry : entries) {
+                for (String key : entry.keys()) {
+                    postings.add(new Match(key, entry));
+                }
+            }
+            Map<Entry, Integer> positions = new IdentityHashMap<>(entries.length);
+            for (int i = 0; i < entries.length; i++) {
+                positions.put(entries[i], i);
+            }
+            postings.sort(Comparator.comparing(Match::key));
+
+            String[] keys = new String[postings.size()];
+            int[] refs = new int[postings.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = postings.get(i).key();
+                refs[i] = positions.get(postings.get(i).entry());
+            }
+            return new Snapshot(entries, keys, refs);
+        }
+    }
+}
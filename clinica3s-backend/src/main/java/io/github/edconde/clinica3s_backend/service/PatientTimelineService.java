@@ -0,0 +1,244 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.PatientTimelineResponse;
+import io.github.edconde.clinica3s_backend.entity.*;
+import io.github.edconde.clinica3s_backend.event.AppointmentChangedEvent;
+import io.github.edconde.clinica3s_backend.event.CatalogChangedEvent;
+import io.github.edconde.clinica3s_backend.event.PatientChangedEvent;
+import io.github.edconde.clinica3s_backend.repository.AppointmentArchiveRepository;
+import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historial de citas de cada paciente (/api/patients/{id}/timeline), servido desde una caché por paciente.
+ * <p>
+ * Una entrada se carga con dos consultas con fetch join (citas activas y archivadas, cada una con su dentista,
+ * detalles y servicios), así que el coste no depende del número de citas del paciente. Se descarta tras el
+ * commit de cualquier escritura de una cita del paciente, de un cambio en sus datos o de un cambio en el
+ * catálogo de servicios. El archivado no la invalida: mueve citas ya pagadas sin cambiar su contenido.
+ * <p>
+ * Como en {@link DentistAgendaService}, las peticiones simultáneas de un paciente que no está en caché
+ * esperan a una única carga, y una entrada invalidada mientras se carga se retira del mapa. Al superar
+ * {@code max-entries} pacientes la caché se vacía.
+ * <p>
+ * Métricas: {@code patients.timeline.cache} con result = hit, miss o coalesced.
+ */
+@Service
+public class PatientTimelineService {
+
+    private static final Comparator<PatientTimelineResponse.TimelineEntry> CHRONOLOGICAL = Comparator
+            .comparing(PatientTimelineResponse.TimelineEntry::getDateTime)
+            .thenComparing(PatientTimelineResponse.TimelineEntry::getAppointmentId);
+
+    private final ConcurrentHashMap<Long, CompletableFuture<PatientTimelineResponse>> entries = new ConcurrentHashMap<>();
+    private final PatientRepository patientRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentArchiveRepository appointmentArchiveRepository;
+    private final int maxEntries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public PatientTimelineService(PatientRepository patientRepository,
+                                  AppointmentRepository appointmentRepository,
+                                  AppointmentArchiveRepository appointmentArchiveRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.patients.timeline.cache.max-entries:1000}") int maxEntries) {
+        this.patientRepository = patientRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.appointmentArchiveRepository = appointmentArchiveRepository;
+        this.maxEntries = maxEntries;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.coalesced = counter(meterRegistry, "coalesced");
+    }
+
+    public PatientTimelineResponse getTimeline(Long patientId) {
+        CompletableFuture<PatientTimelineResponse> current = entries.get(patientId);
+        if (current != null) {
+            (current.isDone() ? hits : coalesced).increment();
+            return join(current);
+        }
+
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        CompletableFuture<PatientTimelineResponse> created = new CompletableFuture<>();
+        CompletableFuture<PatientTimelineResponse> existing = entries.putIfAbsent(patientId, created);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+        misses.increment();
+        try {
+            PatientTimelineResponse timeline = load(patientId);
+            created.complete(timeline);
+            return timeline;
+        } catch (RuntimeException e) {
+            // Los errores (paciente inexistente) no se guardan
+            entries.remove(patientId, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(Long patientId) {
+        entries.remove(patientId);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        invalidate(event.patientId());
+    }
+
+    // El historial muestra el nombre del paciente; las altas (también las importaciones, sin id) no afectan a ninguna entrada
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPatientChanged(PatientChangedEvent event) {
+        if (event.type() != PatientChangedEvent.Type.CREATED && event.patientId() != null) {
+            invalidate(event.patientId());
+        }
+    }
+
+    // Nombres de los servicios
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.type() == CatalogChangedEvent.Type.SERVICE) {
+            invalidateAll();
+        }
+    }
+
+    // Primero las citas activas y después el archivo: una cita archivada entre las dos consultas aparece en
+    // ambas (y se descarta la segunda), nunca en ninguna
+    private PatientTimelineResponse load(Long patientId) {
+        Patient patient = patientRepository.findById(patientId)
+                .orElseThrow(() -> new RuntimeException("Paciente no encontrado"));
+        Map<Long, PatientTimelineResponse.TimelineEntry> byId = new HashMap<>();
+        for (Appointment appointment : appointmentRepository.findTimelineByPatientId(patientId)) {
+            byId.put(appointment.getId(), toEntry(appointment));
+        }
+        for (ArchivedAppointment appointment : appointmentArchiveRepository.findTimelineByPatientId(patientId)) {
+            byId.putIfAbsent(appointment.getId(), toEntry(appointment));
+        }
+
+        List<PatientTimelineResponse.TimelineEntry> timeline = new ArrayList<>(byId.values());
+        timeline.sort(CHRONOLOGICAL);
+        double total = 0.0;
+        double paid = 0.0;
+        for (PatientTimelineResponse.TimelineEntry entry : timeline) {
+            total += entry.getTotalAmount();
+            paid += entry.getPaidAmount();
+            entry.setOutstandingBalance(round(total - paid));
+        }
+        return PatientTimelineResponse.builder()
+                .patientId(patient.getId())
+                .patientName(patient.getName())
+                .totalAmount(round(total))
+                .paidAmount(round(paid))
+                .outstandingBalance(round(total - paid))
+                .appointments(timeline)
+                .build();
+    }
+
+    private static PatientTimelineResponse.TimelineEntry toEntry(Appointment appointment) {
+        List<PatientTimelineResponse.TimelineDetail> details = new ArrayList<>(appointment.getDetails().size());
+        for (AppointmentDetail detail : appointment.getDetails()) {
+            details.add(toDetail(detail.getId(), detail.getService(), detail.getQuantity(), detail.getPriceApplied(),
+                    detail.getPaymentDate()));
+        }
+        return toEntry(appointment.getId(), appointment.getDateTime(), appointment.getDurationMinutes(),
+                appointment.getStatus(), appointment.getDentist(), details);
+    }
+
+    private static PatientTimelineResponse.TimelineEntry toEntry(ArchivedAppointment appointment) {
+        List<PatientTimelineResponse.TimelineDetail> details = new ArrayList<>(appointment.getDetails().size());
+        for (ArchivedAppointmentDetail detail : appointment.getDetails()) {
+            details.add(toDetail(detail.getId(), detail.getService(), detail.getQuantity(), detail.getPriceApplied(),
+                    detail.getPaymentDate()));
+        }
+        return toEntry(appointment.getId(), appointment.getDateTime(), appointment.getDurationMinutes(),
+                appointment.getStatus(), appointment.getDentist(), details);
+    }
+
+    // Importes calculados desde los detalles, de modo que total, pagado y pendiente siempre cuadran
+    private static PatientTimelineResponse.TimelineEntry toEntry(Long id, LocalDateTime dateTime,
+                                                                 Integer durationMinutes, AppointmentStatus status,
+                                                                 Dentist dentist,
+                                                                 List<PatientTimelineResponse.TimelineDetail> details) {
+        details.sort(Comparator.comparing(PatientTimelineResponse.TimelineDetail::getId));
+        double total = 0.0;
+        double paid = 0.0;
+        for (PatientTimelineResponse.TimelineDetail detail : details) {
+            total += detail.getAmount();
+            if (detail.getPaymentDate() != null) {
+                paid += detail.getAmount();
+            }
+        }
+        return PatientTimelineResponse.TimelineEntry.builder()
+                .appointmentId(id)
+                .dateTime(dateTime)
+                .durationMinutes(durationMinutes)
+                .status(status)
+                .dentistId(dentist.getId())
+                .dentistName(dentist.getUser() != null ? dentist.getUser().getName() : null)
+                .totalAmount(round(total))
+                .paidAmount(round(paid))
+                .pendingAmount(round(total - paid))
+                .paid(details.stream().allMatch(detail -> detail.getPaymentDate() != null))
+                .details(details)
+                .build();
+    }
+
+    private static PatientTimelineResponse.TimelineDetail toDetail(Long id, io.github.edconde.clinica3s_backend.entity.Service service,
+                                                                   Integer quantity, Double priceApplied,
+                                                                   LocalDateTime paymentDate) {
+        int units = quantity != null ? quantity : 1;
+        return PatientTimelineResponse.TimelineDetail.builder()
+                .id(id)
+                .serviceId(service.getId())
+                .serviceName(service.getName())
+                .quantity(units)
+                .priceApplied(priceApplied)
+                .amount(round(priceApplied * units))
+                .paymentDate(paymentDate)
+                .build();
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100.0) / 100.0;
+    }
+
+    private static PatientTimelineResponse join(CompletableFuture<PatientTimelineResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("patients.timeline.cache")
+                .description("Accesos a la caché de historiales de pacientes")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
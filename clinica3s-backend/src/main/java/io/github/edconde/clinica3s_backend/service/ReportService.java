@@ -1,19 +1,19 @@
 package io.github.edconde.clinica3s_backend.service;
 
 import io.github.edconde.clinica3s_backend.dto.DashboardStatsDTO;
-import io.github.edconde.clinica3s_backend.entity.Appointment;
-import io.github.edconde.clinica3s_backend.entity.AppointmentDetail;
 import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
-import io.github.edconde.clinica3s_backend.entity.Dentist;
+import io.github.edconde.clinica3s_backend.repository.AppointmentDailyRollupRepository;
 import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import io.github.edconde.clinica3s_backend.repository.DentistRepository;
 import io.github.edconde.clinica3s_backend.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,158 +22,120 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ReportService {
 
+    // Límites usados cuando no se filtra por año (cubren cualquier fecha de cita realista)
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 1, 1);
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final AppointmentDailyRollupRepository rollupRepository;
     private final AppointmentRepository appointmentRepository;
+    private final DentistRepository dentistRepository;
     private final PatientRepository patientRepository;
+    private final DashboardStatsCache dashboardStatsCache;
 
     public DashboardStatsDTO getDashboardStats(Integer year) {
-        List<Appointment> allAppointments = appointmentRepository.findAll();
-
-        // Filtrar por año si se proporciona
-        List<Appointment> filteredAppointments = allAppointments;
-        if (year != null) {
-            filteredAppointments = allAppointments.stream()
-                    .filter(a -> a.getDateTime().getYear() == year)
-                    .toList();
-        }
+        return dashboardStatsCache.get(year, this::computeDashboardStats);
+    }
 
+    /**
+     * Calcula las estadísticas del dashboard a partir de la tabla appointment_daily_rollup,
+     * por lo que el coste depende del número de días y dentistas del periodo, no del volumen de citas.
+     * Todos los indicadores se obtienen en una única pasada de {@link DashboardStatsEngine}.
+     */
+    private DashboardStatsDTO computeDashboardStats(Integer year) {
+        LocalDate start = year != null ? LocalDate.of(year, 1, 1) : MIN_DATE;
+        LocalDate end = year != null ? LocalDate.of(year + 1, 1, 1) : MAX_DATE;
         LocalDateTime now = LocalDateTime.now();
+        LocalDate tomorrow = now.toLocalDate().plusDays(1);
 
-        long totalPatients = patientRepository.count();
-        long totalAppointments = filteredAppointments.size();
-
-        // Citas completadas (pagadas o no)
-        long completedAppointments = filteredAppointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.COMPLETED)
-                .count();
-
-        // Citas futuras (agendadas a partir de la hora actual)
-        long pendingAppointments = filteredAppointments.stream()
-                .filter(a -> a.getDateTime().isAfter(now))
-                .count();
-
-        // Citas pasadas atendidas pero no cobradas (al menos un detalle sin paymentDate)
-        long unpaidAppointments = filteredAppointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.COMPLETED)
-                .filter(a -> a.getDetails().stream().anyMatch(d -> d.getPaymentDate() == null))
-                .count();
-
-        double totalInvoicing = 0.0;  // Lo que han pagado los clientes
-        double totalCost = 0.0;       // Coste para la clínica
-        double pendingPayments = 0.0; // Dinero pendiente de cobrar
-
-        for (Appointment appointment : filteredAppointments) {
-            for (AppointmentDetail detail : appointment.getDetails()) {
-                double amount = detail.getPriceApplied() * detail.getQuantity();
-                double cost = detail.getService().getStandardCost() * detail.getQuantity();
-
-                // Si la cita está completada, el coste se ha incurrido
-                if (appointment.getStatus() == AppointmentStatus.COMPLETED) {
-                    totalCost += cost;
-
-                    if (detail.getPaymentDate() != null) {
-                        totalInvoicing += amount;
-                    } else {
-                        pendingPayments += amount;
-                    }
-                }
-            }
-        }
-
-        // Ganancia = facturación - costes
-        double totalRevenue = totalInvoicing - totalCost;
+        DashboardStatsEngine.Rows rows = loadRows(start, end);
+        DashboardStatsEngine.Totals totals = DashboardStatsEngine.aggregate(rows, tomorrow.toEpochDay());
 
-        List<DashboardStatsDTO.MonthlyStats> monthlyStats = getMonthlyStats(filteredAppointments);
-        List<DashboardStatsDTO.DentistStats> dentistStats = getDentistStats(filteredAppointments);
+        // Citas futuras: los días posteriores a hoy salen de los agregados y las de hoy se cuentan
+        // sobre appointment, ya que dependen de la hora actual
+        LocalDate todayEnd = end.isBefore(tomorrow) ? end : tomorrow;
+        long pendingAppointments = totals.futureAppointments
+                + appointmentRepository.countUpcomingBetween(now, start.atStartOfDay(), todayEnd.atStartOfDay());
 
         return DashboardStatsDTO.builder()
-                .totalPatients(totalPatients)
-                .totalAppointments(totalAppointments)
-                .completedAppointments(completedAppointments)
-                .unpaidAppointments(unpaidAppointments)
+                .totalPatients(patientRepository.count())
+                .totalAppointments(totals.totalAppointments)
+                .completedAppointments(totals.completedAppointments)
+                .unpaidAppointments(totals.unpaidAppointments)
                 .pendingAppointments(pendingAppointments)
-                .totalRevenue(totalRevenue)
-                .totalInvoicing(totalInvoicing)
-                .totalCost(totalCost)
-                .pendingPayments(pendingPayments)
-                .monthlyStats(monthlyStats)
-                .dentistStats(dentistStats)
+                // Ganancia = facturación - costes
+                .totalRevenue(totals.invoiced - totals.cost)
+                .totalInvoicing(totals.invoiced)
+                .totalCost(totals.cost)
+                .pendingPayments(totals.pending)
+                .monthlyStats(getMonthlyStats(rows, totals))
+                .dentistStats(getDentistStats(rows, totals))
                 .build();
     }
 
-    private List<DashboardStatsDTO.MonthlyStats> getMonthlyStats(List<Appointment> appointments) {
-        Map<YearMonth, DashboardStatsDTO.MonthlyStats> statsMap = new HashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-
-        for (Appointment appointment : appointments) {
-            YearMonth yearMonth = YearMonth.from(appointment.getDateTime());
-
-            DashboardStatsDTO.MonthlyStats stats = statsMap.computeIfAbsent(yearMonth,
-                    ym -> DashboardStatsDTO.MonthlyStats.builder()
-                            .month(ym.format(formatter))
-                            .appointments(0L)
-                            .revenue(0.0)
-                            .build());
-
-            stats.setAppointments(stats.getAppointments() + 1);
-
-            // Solo calcular ingresos y costes para citas completadas
-            if (appointment.getStatus() == AppointmentStatus.COMPLETED) {
-                for (AppointmentDetail detail : appointment.getDetails()) {
-                    double cost = detail.getService().getStandardCost() * detail.getQuantity();
-
-                    // Si está pagado, sumar a la ganancia (ingreso - coste)
-                    if (detail.getPaymentDate() != null) {
-                        double amount = detail.getPriceApplied() * detail.getQuantity();
-                        stats.setRevenue(stats.getRevenue() + amount - cost);
-                    } else {
-                        // Si no está pagado pero la cita está completada, restar el coste
-                        stats.setRevenue(stats.getRevenue() - cost);
-                    }
-                }
+    private DashboardStatsEngine.Rows loadRows(LocalDate start, LocalDate end) {
+        DashboardStatsEngine.Builder builder = DashboardStatsEngine.Rows.builder();
+        for (Object[] row : rollupRepository.findRowsBetween(start, end)) {
+            builder.add((LocalDate) row[0],
+                    (Long) row[1],
+                    (AppointmentStatus) row[2],
+                    (Long) row[3],
+                    (Long) row[4],
+                    (Double) row[5],
+                    (Double) row[6],
+                    (Double) row[7]);
+        }
+        return builder.build();
+    }
+
+    private List<DashboardStatsDTO.MonthlyStats> getMonthlyStats(DashboardStatsEngine.Rows rows,
+                                                                 DashboardStatsEngine.Totals totals) {
+        List<DashboardStatsDTO.MonthlyStats> monthlyStats = new ArrayList<>();
+
+        for (int month = 0; month < rows.monthCount(); month++) {
+            if (totals.monthAppointments[month] == 0) {
+                continue;
             }
+            monthlyStats.add(DashboardStatsDTO.MonthlyStats.builder()
+                    .month(rows.yearMonth(month).format(MONTH_FORMATTER))
+                    .appointments(totals.monthAppointments[month])
+                    // Ganancia neta del mes: lo cobrado menos el coste de las citas completadas
+                    .revenue(totals.monthRevenue[month])
+                    .build());
         }
 
-        return new ArrayList<>(statsMap.values());
+        return monthlyStats;
     }
 
-    private List<DashboardStatsDTO.DentistStats> getDentistStats(List<Appointment> appointments) {
-        Map<Long, DashboardStatsDTO.DentistStats> statsMap = new HashMap<>();
-
-        for (Appointment appointment : appointments) {
-            Dentist dentist = appointment.getDentist();
-
-            DashboardStatsDTO.DentistStats stats = statsMap.computeIfAbsent(dentist.getId(),
-                    id -> DashboardStatsDTO.DentistStats.builder()
-                            .dentistId(dentist.getId())
-                            .dentistName(dentist.getUser().getName())
-                            .appointments(0L)
-                            .revenue(0.0)
-                            .commission(0.0)
-                            .build());
-
-            stats.setAppointments(stats.getAppointments() + 1);
-
-            // Solo calcular para citas completadas
-            if (appointment.getStatus() == AppointmentStatus.COMPLETED) {
-                for (AppointmentDetail detail : appointment.getDetails()) {
-                    double cost = detail.getService().getStandardCost() * detail.getQuantity();
-
-                    if (detail.getPaymentDate() != null) {
-                        double amount = detail.getPriceApplied() * detail.getQuantity();
-                        // Revenue es ganancia neta (ingreso - coste)
-                        stats.setRevenue(stats.getRevenue() + amount - cost);
-
-                        double commissionRate = dentist.getCommissionRate() != null ? dentist.getCommissionRate() : 0.0;
-                        stats.setCommission(stats.getCommission() + (amount * commissionRate / 100));
-                    } else {
-                        // Si no está pagado pero la cita está completada, restar el coste
-                        stats.setRevenue(stats.getRevenue() - cost);
-                    }
-                }
+    private List<DashboardStatsDTO.DentistStats> getDentistStats(DashboardStatsEngine.Rows rows,
+                                                                 DashboardStatsEngine.Totals totals) {
+        Map<Long, DentistRepository.DentistSummary> dentists = new HashMap<>();
+        for (DentistRepository.DentistSummary summary : dentistRepository.findSummaries()) {
+            dentists.put(summary.getId(), summary);
+        }
+
+        List<DashboardStatsDTO.DentistStats> dentistStats = new ArrayList<>();
+        for (int index = 0; index < rows.dentistCount(); index++) {
+            if (totals.dentistAppointments[index] == 0) {
+                continue;
             }
+            long dentistId = rows.dentistId(index);
+            DentistRepository.DentistSummary dentist = dentists.get(dentistId);
+            double commissionRate = dentist != null && dentist.getCommissionRate() != null ? dentist.getCommissionRate() : 0.0;
+            double invoiced = totals.dentistInvoiced[index];
+
+            dentistStats.add(DashboardStatsDTO.DentistStats.builder()
+                    .dentistId(dentistId)
+                    .dentistName(dentist != null ? dentist.getName() : null)
+                    .appointments(totals.dentistAppointments[index])
+                    // Revenue es ganancia neta (ingreso - coste); la comisión se calcula sobre lo cobrado
+                    .revenue(invoiced - totals.dentistCost[index])
+                    .commission(invoiced * commissionRate / 100)
+                    .build());
         }
 
-        return new ArrayList<>(statsMap.values());
+        dentistStats.sort(Comparator.comparing(DashboardStatsDTO.DentistStats::getDentistId));
+        return dentistStats;
     }
 }
-
@@ -0,0 +1,103 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Totales aproximados para los listados con pagination=slice.
+ * <ul>
+ *   <li>Sin filtros, en PostgreSQL se lee la estimación de filas del planificador (pg_class.reltuples),
+ *       que mantienen ANALYZE y autovacuum; no recorre la tabla.</li>
+ *   <li>Con filtros (o si la tabla aún no tiene estadísticas) se guarda el count(*) exacto durante el TTL,
+ *       así que el recuento se paga como mucho una vez por filtro y periodo.</li>
+ * </ul>
+ * No se invalida con las escrituras: el valor es orientativo y puede ir por detrás hasta un TTL.
+ */
+@Component
+@Slf4j
+public class RowCountEstimator {
+
+    // Tope de filtros distintos en caché; al superarlo se vacía (los filtros de texto libre no se repiten mucho)
+    private static final int MAX_ENTRIES = 1000;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final boolean postgres;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RowCountEstimator(@Value("${application.pagination.count-estimate.ttl:1m}") Duration ttl,
+                             @Value("${spring.jpa.database-platform:}") String databasePlatform) {
+        this.ttlNanos = ttl.toNanos();
+        this.postgres = databasePlatform.contains("PostgreSQL");
+    }
+
+    /**
+     * Total aproximado de {@code table} para el filtro {@code filterKey} (vacío o null = sin filtros).
+     * {@code exactCount} solo se ejecuta si no hay estadística ni valor en caché.
+     */
+    public long estimate(String table, String filterKey, LongSupplier exactCount) {
+        boolean unfiltered = filterKey == null || filterKey.isEmpty();
+        if (unfiltered && postgres) {
+            Long statistic = plannerEstimate(table);
+            if (statistic != null) {
+                return statistic;
+            }
+        }
+
+        String key = unfiltered ? table : table + "|" + filterKey;
+        long now = System.nanoTime();
+        Entry cached = entries.get(key);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            return cached.count();
+        }
+        long count = exactCount.getAsLong();
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(key, new Entry(count, now));
+        return count;
+    }
+
+    /**
+     * Clave de caché de un conjunto de filtros, vacía si ninguno tiene valor.
+     */
+    public static String filterKey(Object... filters) {
+        boolean any = false;
+        StringBuilder key = new StringBuilder();
+        for (Object filter : filters) {
+            String value = filter != null ? filter.toString().trim().toLowerCase() : "";
+            any |= !value.isEmpty();
+            key.append(value).append('|');
+        }
+        return any ? key.toString() : "";
+    }
+
+    // reltuples vale -1 (PostgreSQL 14+) o 0 si la tabla no se ha analizado nunca
+    private Long plannerEstimate(String table) {
+        try {
+            List<?> rows = entityManager
+                    .createNativeQuery("select reltuples from pg_class where relname = :table and relkind = 'r'")
+                    .setParameter("table", table)
+                    .getResultList();
+            if (!rows.isEmpty() && rows.get(0) instanceof Number reltuples && reltuples.doubleValue() > 0) {
+                return Math.round(reltuples.doubleValue());
+            }
+        } catch (RuntimeException e) {
+            log.debug("Sin estimación de filas para {}: {}", table, e.getMessage());
+        }
+        return null;
+    }
+
+    private record Entry(long count, long loadedAt) {
+    }
+}
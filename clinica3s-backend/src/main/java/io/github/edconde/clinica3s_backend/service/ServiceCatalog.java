@@ -0,0 +1,119 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.Service;
+import io.github.edconde.clinica3s_backend.event.CatalogChangedEvent;
+import io.github.edconde.clinica3s_backend.repository.ServiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Copia en memoria del catálogo de servicios (con su especialidad). Cada instantánea es inmutable y se
+ * sustituye de forma atómica cuando se confirma una escritura de servicios o especialidades, así que las
+ * lecturas del catálogo y el cálculo de precios de las citas no acceden a la base de datos.
+ * <p>
+ * Las entidades de la instantánea están desacopladas: solo deben leerse o usarse como referencia en
+ * asociaciones, nunca modificarse.
+ */
+@Component
+@Slf4j
+public class ServiceCatalog {
+
+    private final ServiceRepository serviceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Snapshot snapshot;
+
+    public ServiceCatalog(ServiceRepository serviceRepository, PlatformTransactionManager transactionManager) {
+        this.serviceRepository = serviceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public List<Service> findAll() {
+        return snapshot().services();
+    }
+
+    // Los mapas inmutables no admiten claves null
+    public Optional<Service> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot().byId().get(id));
+    }
+
+    public List<Service> findBySpecialtyId(Long specialtyId) {
+        return specialtyId == null ? List.of() : snapshot().bySpecialty().getOrDefault(specialtyId, List.of());
+    }
+
+    /**
+     * Huella del contenido del catálogo (ids y versiones de servicios y especialidades). Es la misma en
+     * todas las instancias con los mismos datos, así que sirve como ETag de las lecturas del catálogo.
+     */
+    public String version() {
+        return snapshot().version();
+    }
+
+    /**
+     * Vuelve a leer el catálogo completo. Es sincronizado para que una carga más antigua nunca
+     * sustituya a otra posterior.
+     */
+    public synchronized void reload() {
+        List<Service> services = transactionTemplate.execute(status -> serviceRepository.findAll(Sort.by("id")));
+        snapshot = Snapshot.of(services);
+        log.debug("Catálogo de servicios recargado ({} servicios)", services.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        reload();
+    }
+
+    // Carga perezosa: la primera lectura se produce cuando DataInitializer ya ha creado el catálogo
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(List<Service> services,
+                            Map<Long, Service> byId,
+                            Map<Long, List<Service>> bySpecialty,
+                            String version) {
+
+        static Snapshot of(List<Service> services) {
+            Map<Long, Service> byId = services.stream()
+                    .collect(Collectors.toUnmodifiableMap(Service::getId, service -> service));
+            Map<Long, List<Service>> bySpecialty = services.stream()
+                    .filter(service -> service.getSpecialty() != null)
+                    .collect(Collectors.groupingBy(service -> service.getSpecialty().getId(),
+                            Collectors.toUnmodifiableList()));
+            return new Snapshot(List.copyOf(services), byId, Map.copyOf(bySpecialty), fingerprint(services));
+        }
+
+        // Los servicios llegan ordenados por id
+        private static String fingerprint(List<Service> services) {
+            long hash = 1125899906842597L;
+            for (Service service : services) {
+                hash = 31 * hash + service.getId();
+                hash = 31 * hash + Objects.requireNonNullElse(service.getVersion(), 0L);
+                if (service.getSpecialty() != null) {
+                    hash = 31 * hash + service.getSpecialty().getId();
+                    hash = 31 * hash + Objects.requireNonNullElse(service.getSpecialty().getVersion(), 0L);
+                }
+            }
+            return services.size() + "-" + Long.toHexString(hash);
+        }
+    }
+}
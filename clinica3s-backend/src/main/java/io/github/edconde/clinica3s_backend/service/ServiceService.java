@@ -1,49 +1,108 @@
 package io.github.edconde.clinica3s_backend.service;
 
+import io.github.edconde.clinica3s_backend.event.CatalogChangedEvent;
 import io.github.edconde.clinica3s_backend.repository.ServiceRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @org.springframework.stereotype.Service
 @RequiredArgsConstructor
 public class ServiceService {
 
+    // Propiedades por las que se puede ordenar el catálogo en memoria
+    private static final Map<String, Comparator<io.github.edconde.clinica3s_backend.entity.Service>> SORTABLE = Map.of(
+            "id", Comparator.comparing(io.github.edconde.clinica3s_backend.entity.Service::getId),
+            "name", Comparator.comparing(io.github.edconde.clinica3s_backend.entity.Service::getName,
+                    Comparator.nullsLast(Comparator.naturalOrder())),
+            "standardCost", Comparator.comparing(io.github.edconde.clinica3s_backend.entity.Service::getStandardCost,
+                    Comparator.nullsLast(Comparator.naturalOrder())),
+            "listPrice", Comparator.comparing(io.github.edconde.clinica3s_backend.entity.Service::getListPrice,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+
     private final ServiceRepository serviceRepository;
+    private final ServiceCatalog serviceCatalog;
+    private final AppointmentRollupService appointmentRollupService;
+    private final AppointmentListView appointmentListView;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<io.github.edconde.clinica3s_backend.entity.Service> findAll(Pageable pageable) {
-        return serviceRepository.findAll(pageable);
+        Comparator<io.github.edconde.clinica3s_backend.entity.Service> comparator = comparator(pageable.getSort());
+        if (comparator == null) {
+            // Orden no soportado en memoria: se delega en la base de datos
+            return serviceRepository.findAll(pageable);
+        }
+
+        List<io.github.edconde.clinica3s_backend.entity.Service> services = new ArrayList<>(serviceCatalog.findAll());
+        services.sort(comparator);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(services, pageable, services.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), services.size());
+        int to = Math.min(from + pageable.getPageSize(), services.size());
+        return new PageImpl<>(services.subList(from, to), pageable, services.size());
     }
 
     public List<io.github.edconde.clinica3s_backend.entity.Service> findAll() {
-        return serviceRepository.findAll();
+        return serviceCatalog.findAll();
     }
 
     public io.github.edconde.clinica3s_backend.entity.Service findById(Long id) {
-        return serviceRepository.findById(id)
+        return serviceCatalog.findById(id)
                 .orElseThrow(() -> new RuntimeException("Servicio no encontrado"));
     }
 
+    // Cambia con cualquier alta, baja o modificación de servicios o especialidades
+    public String catalogVersion() {
+        return serviceCatalog.version();
+    }
+
     public List<io.github.edconde.clinica3s_backend.entity.Service> findBySpecialtyId(Long specialtyId) {
-        return serviceRepository.findBySpecialtyId(specialtyId);
+        return serviceCatalog.findBySpecialtyId(specialtyId);
     }
 
     @Transactional
     public io.github.edconde.clinica3s_backend.entity.Service create(io.github.edconde.clinica3s_backend.entity.Service service) {
-        return serviceRepository.save(service);
+        io.github.edconde.clinica3s_backend.entity.Service saved = serviceRepository.save(service);
+        eventPublisher.publishEvent(CatalogChangedEvent.service(saved.getId()));
+        return saved;
     }
 
     @Transactional
     public io.github.edconde.clinica3s_backend.entity.Service update(Long id, io.github.edconde.clinica3s_backend.entity.Service service) {
-        io.github.edconde.clinica3s_backend.entity.Service existing = findById(id);
+        // Se modifica la entidad gestionada, nunca la instancia compartida del catálogo
+        io.github.edconde.clinica3s_backend.entity.Service existing = serviceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Servicio no encontrado"));
+        boolean costChanged = !Objects.equals(existing.getStandardCost(), service.getStandardCost());
+        boolean nameChanged = !Objects.equals(existing.getName(), service.getName());
         existing.setName(service.getName());
         existing.setStandardCost(service.getStandardCost());
         existing.setListPrice(service.getListPrice());
+        if (service.getDurationMinutes() != null) {
+            existing.setDurationMinutes(service.getDurationMinutes());
+        }
         existing.setSpecialty(service.getSpecialty());
-        return serviceRepository.save(existing);
+        io.github.edconde.clinica3s_backend.entity.Service saved = serviceRepository.saveAndFlush(existing);
+        if (costChanged) {
+            // Los agregados guardan el coste con el precio vigente; las citas que se modifiquen después restan
+            // su aportación con el nuevo, así que hay que recalcularlos para que coincidan
+            appointmentRollupService.rebuild();
+        }
+        if (nameChanged) {
+            appointmentListView.updateService(saved.getId());
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.service(saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -52,6 +111,19 @@ public class ServiceService {
             throw new RuntimeException("Servicio no encontrado");
         }
         serviceRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.service(id));
     }
-}
 
+    private static Comparator<io.github.edconde.clinica3s_backend.entity.Service> comparator(Sort sort) {
+        Comparator<io.github.edconde.clinica3s_backend.entity.Service> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<io.github.edconde.clinica3s_backend.entity.Service> next = SORTABLE.get(order.getProperty());
+            if (next == null) {
+                return null;
+            }
+            next = order.isDescending() ? next.reversed() : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator != null ? comparator : SORTABLE.get("id");
+    }
+}
@@ -1,8 +1,10 @@
 package io.github.edconde.clinica3s_backend.service;
 
 import io.github.edconde.clinica3s_backend.entity.Specialty;
+import io.github.edconde.clinica3s_backend.event.CatalogChangedEvent;
 import io.github.edconde.clinica3s_backend.repository.SpecialtyRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -15,6 +17,7 @@ import java.util.List;
 public class SpecialtyService {
 
     private final SpecialtyRepository specialtyRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Specialty> findAll(Pageable pageable) {
         return specialtyRepository.findAll(pageable);
@@ -29,6 +32,11 @@ public class SpecialtyService {
                 .orElseThrow(() -> new RuntimeException("Especialidad no encontrada"));
     }
 
+    public Long findVersion(Long id) {
+        return specialtyRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Especialidad no encontrada"));
+    }
+
     public Specialty findByName(String name) {
         return specialtyRepository.findByName(name)
                 .orElseThrow(() -> new RuntimeException("Especialidad no encontrada: " + name));
@@ -36,14 +44,18 @@ public class SpecialtyService {
 
     @Transactional
     public Specialty create(Specialty specialty) {
-        return specialtyRepository.save(specialty);
+        Specialty saved = specialtyRepository.save(specialty);
+        eventPublisher.publishEvent(CatalogChangedEvent.specialty(saved.getId()));
+        return saved;
     }
 
     @Transactional
     public Specialty update(Long id, Specialty specialty) {
         Specialty existing = findById(id);
         existing.setName(specialty.getName());
-        return specialtyRepository.save(existing);
+        Specialty saved = specialtyRepository.save(existing);
+        eventPublisher.publishEvent(CatalogChangedEvent.specialty(saved.getId()));
+        return saved;
     }
 
     @Transactional
@@ -52,6 +64,7 @@ public class SpecialtyService {
             throw new RuntimeException("Especialidad no encontrada");
         }
         specialtyRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.specialty(id));
     }
 }
 
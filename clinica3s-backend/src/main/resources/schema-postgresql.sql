@@ -72,6 +72,91 @@ CREATE TABLE IF NOT EXISTS appointment_detail (
     service_id BIGINT NOT NULL REFERENCES service(id) ON DELETE RESTRICT
 );
 
+-- Duración de servicios y citas (minutos)
+ALTER TABLE service ADD COLUMN IF NOT EXISTS duration_minutes INTEGER NOT NULL DEFAULT 30;
+ALTER TABLE appointment ADD COLUMN IF NOT EXISTS duration_minutes INTEGER NOT NULL DEFAULT 30;
+
+-- Versión para el bloqueo optimista de citas
+ALTER TABLE appointment ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Versiones de pacientes y catálogo, usadas en los ETag de las lecturas condicionales
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE service ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE specialty ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- La restricción de exclusión appointment_no_overlap (citas solapadas de un dentista) se crea al arrancar
+-- desde AppointmentOverlapConstraint: necesita un bloque DO, que este script no puede contener.
+
+-- Secuencias de Hibernate para citas y detalles (optimizador pooled, reserva ids de 50 en 50
+-- para poder agrupar los INSERT en lotes JDBC)
+CREATE SEQUENCE IF NOT EXISTS appointment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS appointment_detail_seq START WITH 1 INCREMENT BY 50;
+-- Pacientes: misma estrategia para la importación masiva
+CREATE SEQUENCE IF NOT EXISTS patient_seq START WITH 1 INCREMENT BY 50;
+
+-- Si ya había filas creadas con BIGSERIAL, la secuencia se adelanta al id máximo existente
+SELECT setval('appointment_seq', (SELECT MAX(id) FROM appointment))
+WHERE (SELECT last_value FROM appointment_seq) < (SELECT COALESCE(MAX(id), 0) FROM appointment);
+SELECT setval('appointment_detail_seq', (SELECT MAX(id) FROM appointment_detail))
+WHERE (SELECT last_value FROM appointment_detail_seq) < (SELECT COALESCE(MAX(id), 0) FROM appointment_detail);
+SELECT setval('patient_seq', (SELECT MAX(id) FROM patient))
+WHERE (SELECT last_value FROM patient_seq) < (SELECT COALESCE(MAX(id), 0) FROM patient);
+
+-- Agregados diarios de citas por (día, dentista, estado) para reportes
+CREATE TABLE IF NOT EXISTS appointment_daily_rollup (
+    rollup_day DATE NOT NULL,
+    dentist_id BIGINT NOT NULL,
+    status VARCHAR(50) NOT NULL CHECK (status IN ('PENDING', 'COMPLETED', 'NO_SHOW')),
+    appointments BIGINT NOT NULL DEFAULT 0,
+    unpaid_appointments BIGINT NOT NULL DEFAULT 0,
+    invoiced DOUBLE PRECISION NOT NULL DEFAULT 0,
+    pending DOUBLE PRECISION NOT NULL DEFAULT 0,
+    cost DOUBLE PRECISION NOT NULL DEFAULT 0,
+    PRIMARY KEY (rollup_day, dentist_id, status)
+);
+
+-- Listado de citas desnormalizado (una fila por cita), mantenido en la misma transacción que las escrituras
+CREATE TABLE IF NOT EXISTS appointment_list_view (
+    appointment_id BIGINT PRIMARY KEY,
+    date_time TIMESTAMP NOT NULL,
+    duration_minutes INTEGER NOT NULL,
+    status VARCHAR(50) NOT NULL CHECK (status IN ('PENDING', 'COMPLETED', 'NO_SHOW')),
+    total_amount DOUBLE PRECISION,
+    paid BOOLEAN NOT NULL,
+    version BIGINT NOT NULL,
+    patient_id BIGINT NOT NULL,
+    patient_name VARCHAR(255),
+    patient_phone VARCHAR(255),
+    patient_email VARCHAR(255),
+    patient_version BIGINT,
+    dentist_id BIGINT NOT NULL,
+    dentist_name VARCHAR(255),
+    dentist_license VARCHAR(255),
+    services_summary VARCHAR(500)
+);
+
+-- Archivo de citas históricas (pagadas y en estado final), con los mismos ids que tenían en appointment
+CREATE TABLE IF NOT EXISTS appointment_archive (
+    id BIGINT PRIMARY KEY,
+    date_time TIMESTAMP NOT NULL,
+    status VARCHAR(50) NOT NULL CHECK (status IN ('PENDING', 'COMPLETED', 'NO_SHOW')),
+    duration_minutes INTEGER NOT NULL,
+    version BIGINT NOT NULL,
+    total_amount DOUBLE PRECISION,
+    patient_id BIGINT NOT NULL REFERENCES patient(id) ON DELETE RESTRICT,
+    dentist_id BIGINT NOT NULL REFERENCES dentist(id) ON DELETE RESTRICT,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS appointment_detail_archive (
+    id BIGINT PRIMARY KEY,
+    quantity INTEGER NOT NULL,
+    price_applied DOUBLE PRECISION NOT NULL,
+    payment_date TIMESTAMP,
+    appointment_id BIGINT NOT NULL REFERENCES appointment_archive(id) ON DELETE CASCADE,
+    service_id BIGINT NOT NULL REFERENCES service(id) ON DELETE RESTRICT
+);
+
 -- =====================================================
 -- Índices para mejorar rendimiento
 -- =====================================================
@@ -80,6 +165,19 @@ CREATE INDEX IF NOT EXISTS idx_appointment_date_time ON appointment(date_time);
 CREATE INDEX IF NOT EXISTS idx_appointment_status ON appointment(status);
 CREATE INDEX IF NOT EXISTS idx_appointment_patient ON appointment(patient_id);
 CREATE INDEX IF NOT EXISTS idx_appointment_dentist ON appointment(dentist_id);
+-- Paginación por cursor sobre (date_time, id), general y por dentista
+CREATE INDEX IF NOT EXISTS idx_appointment_date_time_id ON appointment(date_time, id);
+CREATE INDEX IF NOT EXISTS idx_appointment_dentist_date_time_id ON appointment(dentist_id, date_time, id);
 CREATE INDEX IF NOT EXISTS idx_appointment_detail_appointment ON appointment_detail(appointment_id);
 CREATE INDEX IF NOT EXISTS idx_service_specialty ON service(specialty_id);
 CREATE INDEX IF NOT EXISTS idx_dentist_user ON dentist(user_id);
+-- Listado de citas: paginación por (date_time, id) y filtros por dentista, paciente y estado
+CREATE INDEX IF NOT EXISTS idx_appointment_list_date_time_id ON appointment_list_view(date_time, appointment_id);
+CREATE INDEX IF NOT EXISTS idx_appointment_list_dentist_date_time ON appointment_list_view(dentist_id, date_time, appointment_id);
+CREATE INDEX IF NOT EXISTS idx_appointment_list_patient_date_time ON appointment_list_view(patient_id, date_time);
+CREATE INDEX IF NOT EXISTS idx_appointment_list_status_date_time ON appointment_list_view(status, date_time);
+-- Archivo de citas
+CREATE INDEX IF NOT EXISTS idx_appointment_archive_date_time_id ON appointment_archive(date_time, id);
+CREATE INDEX IF NOT EXISTS idx_appointment_archive_patient ON appointment_archive(patient_id);
+CREATE INDEX IF NOT EXISTS idx_appointment_archive_dentist_date_time ON appointment_archive(dentist_id, date_time);
+CREATE INDEX IF NOT EXISTS idx_appointment_detail_archive_appointment ON appointment_detail_archive(appointment_id);
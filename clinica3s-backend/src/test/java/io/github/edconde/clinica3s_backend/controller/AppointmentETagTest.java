@@ -0,0 +1,53 @@
+package io.github.edconde.clinica3s_backend.controller;
+
+import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import io.github.edconde.clinica3s_backend.service.AppointmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El ETag de una cita (versión de la cita y de su paciente) debe cambiar siempre que cambie su representación,
+ * también cuando el pago solo toca los detalles de una cita ya completada. Usa los datos de prueba que carga
+ * DataInitializer en development, que incluyen citas completadas con servicios pendientes de pago.
+ */
+@SpringBootTest
+class AppointmentETagTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Test
+    void payingCompletedAppointmentChangesVersionAndETag() {
+        AppointmentResponse unpaid = appointmentService.findWithFilters(null, null, AppointmentStatus.COMPLETED, null, null,
+                        PageRequest.of(0, 1000, Sort.by("dateTime")))
+                .stream()
+                .filter(appointment -> Boolean.FALSE.equals(appointment.getPaid()))
+                .findFirst()
+                .orElseThrow();
+        String before = etag(unpaid.getId());
+
+        AppointmentResponse paid = appointmentService.payAppointment(unpaid.getId());
+
+        assertThat(paid.getPaid()).isTrue();
+        assertThat(paid.getVersion()).isGreaterThan(unpaid.getVersion());
+        assertThat(etag(unpaid.getId()))
+                .isNotEqualTo(before)
+                .isEqualTo(ETags.of(paid.getVersion(), paid.getPatient().getVersion()));
+        assertThat(appointmentService.findById(unpaid.getId()).getVersion()).isEqualTo(paid.getVersion());
+
+        // Sin nada pendiente el pago no cambia la cita ni su versión
+        assertThat(appointmentService.payAppointment(unpaid.getId()).getVersion()).isEqualTo(paid.getVersion());
+    }
+
+    // Mismo ETag que devuelve GET /api/appointments/{id}
+    private String etag(Long id) {
+        var stamp = appointmentService.findVersionStamp(id);
+        return ETags.of(stamp.getVersion(), stamp.getPatientVersion());
+    }
+}
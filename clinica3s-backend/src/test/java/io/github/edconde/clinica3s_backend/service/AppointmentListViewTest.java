@@ -0,0 +1,55 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.Service;
+import io.github.edconde.clinica3s_backend.repository.AppointmentListEntryRepository;
+import io.github.edconde.clinica3s_backend.repository.AppointmentRepository;
+import io.github.edconde.clinica3s_backend.repository.ServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El resumen de servicios del listado lleva el nombre de cada servicio, así que renombrar uno debe reescribir
+ * las filas de las citas que lo incluyen. Usa los datos de prueba que carga DataInitializer en development.
+ */
+@SpringBootTest
+class AppointmentListViewTest {
+
+    @Autowired
+    private ServiceService serviceService;
+    @Autowired
+    private ServiceRepository serviceRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private AppointmentListEntryRepository entryRepository;
+
+    @Test
+    void serviceRenameUpdatesServicesSummary() {
+        Service service = serviceRepository.findAll().get(0);
+        String originalName = service.getName();
+        Long appointmentId = appointmentRepository.findIdsByServiceId(service.getId()).get(0);
+
+        try {
+            serviceService.update(service.getId(), withName(service, "Servicio Renombrado"));
+
+            assertThat(entryRepository.findById(appointmentId).orElseThrow().getServicesSummary())
+                    .contains("Servicio Renombrado");
+        } finally {
+            serviceService.update(service.getId(), withName(service, originalName));
+        }
+        assertThat(entryRepository.findById(appointmentId).orElseThrow().getServicesSummary()).contains(originalName);
+    }
+
+    private static Service withName(Service service, String name) {
+        return Service.builder()
+                .name(name)
+                .standardCost(service.getStandardCost())
+                .listPrice(service.getListPrice())
+                .durationMinutes(service.getDurationMinutes())
+                .specialty(service.getSpecialty())
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.AppUser;
+import io.github.edconde.clinica3s_backend.repository.AppUserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara los bytes asignados por el hilo al leer la misma página de citas por la ruta de entidades
+ * (findByUserRolePaged) y por los tres modos de paginación de GET /api/appointments, que se sirven del
+ * modelo de lectura appointment_list_view. Depende de la JVM y del GC, así que se ejecuta solo con el
+ * perfil benchmark.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class AppointmentReadPathAllocationBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 50;
+    private static final Pageable PAGE = PageRequest.of(0, 100, Sort.by("dateTime", "id"));
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private AppUserRepository userRepository;
+
+    @Test
+    void listEndpointAllocatesLessThanEntityPath() {
+        AppUser admin = userRepository.findByUsername("admin").orElseThrow();
+
+        long entityBytes = allocatedBytesPerCall(() -> appointmentService.findByUserRolePaged(admin, PAGE));
+        long offsetBytes = allocatedBytesPerCall(
+                () -> appointmentService.findWithFilters(null, null, null, null, null, PAGE));
+        long sliceBytes = allocatedBytesPerCall(
+                () -> appointmentService.findSliceWithFilters(null, null, null, null, null, PAGE));
+        long cursorBytes = allocatedBytesPerCall(
+                () -> appointmentService.findWithFiltersByCursor(null, null, null, null, null, null, PAGE.getPageSize()));
+
+        assertThat(offsetBytes).isLessThan(entityBytes);
+        assertThat(sliceBytes).isLessThan(entityBytes);
+        assertThat(cursorBytes).isLessThan(entityBytes);
+    }
+
+    private static long allocatedBytesPerCall(Runnable action) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            action.run();
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            action.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+    }
+}
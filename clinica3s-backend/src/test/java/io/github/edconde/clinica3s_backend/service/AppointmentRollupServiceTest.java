@@ -0,0 +1,63 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentDailyRollup;
+import io.github.edconde.clinica3s_backend.entity.Service;
+import io.github.edconde.clinica3s_backend.repository.AppointmentDailyRollupRepository;
+import io.github.edconde.clinica3s_backend.repository.ServiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Al cambiar el coste estándar de un servicio los agregados diarios deben quedar igual que si se regenerasen
+ * desde las citas; si no, la aportación que se resta al modificar una cita ya no coincide con la guardada.
+ * Usa los datos de prueba que carga DataInitializer en development.
+ */
+@SpringBootTest
+class AppointmentRollupServiceTest {
+
+    @Autowired
+    private AppointmentRollupService rollupService;
+    @Autowired
+    private AppointmentDailyRollupRepository rollupRepository;
+    @Autowired
+    private ServiceService serviceService;
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Test
+    void standardCostChangeKeepsRollupInSyncWithAppointments() {
+        Service service = serviceRepository.findAll().get(0);
+        double originalCost = service.getStandardCost();
+        double costBefore = totalCost();
+
+        try {
+            serviceService.update(service.getId(), withStandardCost(service, originalCost + 10));
+            double costAfterUpdate = totalCost();
+
+            assertThat(costAfterUpdate).isGreaterThan(costBefore);
+            rollupService.rebuild();
+            assertThat(totalCost()).isCloseTo(costAfterUpdate, within(0.001));
+        } finally {
+            serviceService.update(service.getId(), withStandardCost(service, originalCost));
+        }
+        assertThat(totalCost()).isCloseTo(costBefore, within(0.001));
+    }
+
+    private double totalCost() {
+        return rollupRepository.findAll().stream().mapToDouble(AppointmentDailyRollup::getCost).sum();
+    }
+
+    private static Service withStandardCost(Service service, double standardCost) {
+        return Service.builder()
+                .name(service.getName())
+                .standardCost(standardCost)
+                .listPrice(service.getListPrice())
+                .durationMinutes(service.getDurationMinutes())
+                .specialty(service.getSpecialty())
+                .build();
+    }
+}
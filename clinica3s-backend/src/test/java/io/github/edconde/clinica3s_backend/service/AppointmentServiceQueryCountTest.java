@@ -0,0 +1,113 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.AppointmentResponse;
+import io.github.edconde.clinica3s_backend.entity.AppUser;
+import io.github.edconde.clinica3s_backend.entity.Dentist;
+import io.github.edconde.clinica3s_backend.repository.AppUserRepository;
+import io.github.edconde.clinica3s_backend.repository.DentistRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regresión del problema N+1 al mapear citas: el número de sentencias SQL de los listados no debe
+ * depender del tamaño de la página. Usa los datos de prueba que carga DataInitializer en development.
+ */
+@SpringBootTest
+class AppointmentServiceQueryCountTest {
+
+    // Consulta de la página, count(*) y carga de detalles
+    private static final long MAX_STATEMENTS_PER_PAGE = 3;
+    // Búsqueda del dentista del usuario (su usuario puede cargarse en una consulta aparte)
+    private static final long MAX_STATEMENTS_FOR_USER_LOOKUP = 2;
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private AppUserRepository userRepository;
+    @Autowired
+    private DentistRepository dentistRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void findWithFiltersRunsConstantStatementsPerPage() {
+        long small = countStatements(() -> page(10));
+        long large = countStatements(() -> page(50));
+
+        assertThat(small).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void findByUserRolePagedRunsConstantStatementsPerPage() {
+        AppUser admin = userRepository.findByUsername("admin").orElseThrow();
+
+        long small = countStatements(() -> appointmentService.findByUserRolePaged(admin, PageRequest.of(0, 10)));
+        long large = countStatements(() -> appointmentService.findByUserRolePaged(admin, PageRequest.of(0, 50)));
+
+        assertThat(small).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void findByIdLoadsAppointmentInSingleStatement() {
+        Long id = page(1).getContent().get(0).getId();
+
+        long statements = countStatements(() -> appointmentService.findById(id));
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    void findByUserRoleDoesNotQueryPerAppointment() {
+        Dentist dentist = dentistRepository.findAll().get(0);
+        AppUser user = dentist.getUser();
+
+        statistics.clear();
+        List<AppointmentResponse> appointments = appointmentService.findByUserRole(user);
+        long statements = statistics.getPrepareStatementCount();
+
+        // Búsqueda del dentista, consulta de citas y una carga de detalles por cada bloque de 500 citas
+        long detailBatches = (appointments.size() + 499) / 500;
+        assertThat(appointments).isNotEmpty();
+        assertThat(statements).isLessThanOrEqualTo(MAX_STATEMENTS_FOR_USER_LOOKUP + 1 + detailBatches);
+    }
+
+    private Page<AppointmentResponse> page(int size) {
+        return appointmentService.findWithFilters(null, null, null, null, null,
+                PageRequest.of(0, size, Sort.by("dateTime")));
+    }
+
+    private long countStatements(Supplier<?> action) {
+        statistics.clear();
+        action.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
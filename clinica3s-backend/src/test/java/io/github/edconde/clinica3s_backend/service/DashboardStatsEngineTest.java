@@ -0,0 +1,107 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.AppointmentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba el motor de una sola pasada contra valores calculados a mano para un conjunto fijo de filas de
+ * agregados diarios, con las reglas de las consultas agrupadas por estado, mes y dentista a las que sustituye:
+ * todas las citas cuentan para los totales por mes y dentista, y solo las completadas aportan facturación,
+ * coste y pagos pendientes. Los importes son enteros para que la suma sea exacta independientemente del orden
+ * de las particiones.
+ */
+class DashboardStatsEngineTest {
+
+    private static final LocalDate FUTURE_FROM = LocalDate.of(2025, 6, 15);
+
+    // día, dentista, estado, citas, citas sin pagar, cobrado, pendiente, coste
+    private static final List<Row> ROWS = List.of(
+            new Row(LocalDate.of(2025, 1, 10), 1, AppointmentStatus.COMPLETED, 3, 1, 300, 50, 120),
+            new Row(LocalDate.of(2025, 1, 20), 2, AppointmentStatus.PENDING, 2, 2, 0, 200, 80),
+            new Row(LocalDate.of(2025, 2, 5), 1, AppointmentStatus.NO_SHOW, 1, 1, 0, 90, 30),
+            // Primer día futuro: cuenta como agendada
+            new Row(LocalDate.of(2025, 6, 15), 2, AppointmentStatus.PENDING, 4, 4, 0, 400, 160),
+            new Row(LocalDate.of(2025, 7, 1), 2, AppointmentStatus.COMPLETED, 2, 0, 500, 0, 200));
+
+    @Test
+    void aggregatesFixedRows() {
+        assertTotals(ROWS, 1);
+    }
+
+    // Las mismas filas repetidas hasta superar el umbral de paralelismo: cada total se multiplica por las copias
+    @Test
+    void aggregatesRowsSplitAcrossPartitions() {
+        int copies = DashboardStatsEngine.PARALLEL_THRESHOLD * 2 / ROWS.size() + 1;
+        assertTotals(Collections.nCopies(copies, ROWS).stream().flatMap(List::stream).toList(), copies);
+    }
+
+    @Test
+    void handlesEmptyInput() {
+        DashboardStatsEngine.Rows rows = DashboardStatsEngine.Rows.builder().build();
+        DashboardStatsEngine.Totals totals = DashboardStatsEngine.aggregate(rows, 0);
+
+        assertThat(rows.monthCount()).isZero();
+        assertThat(rows.dentistCount()).isZero();
+        assertThat(totals.totalAppointments).isZero();
+        assertThat(totals.invoiced).isZero();
+    }
+
+    private static void assertTotals(List<Row> input, int copies) {
+        DashboardStatsEngine.Builder builder = DashboardStatsEngine.Rows.builder();
+        input.forEach(r -> builder.add(r.day, r.dentistId, r.status, r.appointments, r.unpaid, r.invoiced, r.pending, r.cost));
+        DashboardStatsEngine.Rows rows = builder.build();
+        DashboardStatsEngine.Totals totals = DashboardStatsEngine.aggregate(rows, FUTURE_FROM.toEpochDay());
+
+        assertThat(totals.totalAppointments).isEqualTo(12L * copies);
+        assertThat(totals.completedAppointments).isEqualTo(5L * copies);
+        assertThat(totals.unpaidAppointments).isEqualTo(1L * copies);
+        assertThat(totals.futureAppointments).isEqualTo(6L * copies);
+        assertThat(totals.invoiced).isEqualTo(800.0 * copies);
+        assertThat(totals.pending).isEqualTo(50.0 * copies);
+        assertThat(totals.cost).isEqualTo(320.0 * copies);
+
+        Map<YearMonth, Long> monthAppointments = new HashMap<>();
+        Map<YearMonth, Double> monthRevenue = new HashMap<>();
+        for (int month = 0; month < rows.monthCount(); month++) {
+            if (totals.monthAppointments[month] > 0) {
+                monthAppointments.put(rows.yearMonth(month), totals.monthAppointments[month]);
+                monthRevenue.put(rows.yearMonth(month), totals.monthRevenue[month]);
+            }
+        }
+        assertThat(monthAppointments).isEqualTo(Map.of(
+                YearMonth.of(2025, 1), 5L * copies,
+                YearMonth.of(2025, 2), 1L * copies,
+                YearMonth.of(2025, 6), 4L * copies,
+                YearMonth.of(2025, 7), 2L * copies));
+        assertThat(monthRevenue).isEqualTo(Map.of(
+                YearMonth.of(2025, 1), 180.0 * copies,
+                YearMonth.of(2025, 2), 0.0,
+                YearMonth.of(2025, 6), 0.0,
+                YearMonth.of(2025, 7), 300.0 * copies));
+
+        Map<Long, Long> dentistAppointments = new HashMap<>();
+        Map<Long, Double> dentistInvoiced = new HashMap<>();
+        Map<Long, Double> dentistCost = new HashMap<>();
+        for (int index = 0; index < rows.dentistCount(); index++) {
+            dentistAppointments.put(rows.dentistId(index), totals.dentistAppointments[index]);
+            dentistInvoiced.put(rows.dentistId(index), totals.dentistInvoiced[index]);
+            dentistCost.put(rows.dentistId(index), totals.dentistCost[index]);
+        }
+        assertThat(dentistAppointments).isEqualTo(Map.of(1L, 4L * copies, 2L, 8L * copies));
+        assertThat(dentistInvoiced).isEqualTo(Map.of(1L, 300.0 * copies, 2L, 500.0 * copies));
+        assertThat(dentistCost).isEqualTo(Map.of(1L, 120.0 * copies, 2L, 200.0 * copies));
+    }
+
+    private record Row(LocalDate day, long dentistId, AppointmentStatus status,
+                       long appointments, long unpaid, double invoiced, double pending, double cost) {
+    }
+}
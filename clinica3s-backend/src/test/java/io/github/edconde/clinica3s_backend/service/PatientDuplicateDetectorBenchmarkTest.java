@@ -0,0 +1,93 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.PatientDuplicateReport;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coste de la detección de duplicados sobre 200.000 pacientes sintéticos con duplicados sembrados: las
+ * comparaciones deben crecer linealmente y los duplicados sembrados deben salir. Tarda varios segundos, así
+ * que se ejecuta solo con el perfil benchmark; las reglas se comprueban en {@link PatientDuplicateDetectorTest}.
+ */
+@Tag("benchmark")
+class PatientDuplicateDetectorBenchmarkTest {
+
+    private static final int PATIENTS = 200_000;
+    private static final int PLANTED = 500;
+    private static final int MAX_COMPARISONS_PER_PATIENT = 100;
+
+    private static final String[] FIRST_NAMES = {"María", "José", "Antonio", "Carmen", "Manuel", "Ana", "Francisco",
+            "Lucía", "David", "Laura", "Javier", "Marta", "Daniel", "Sofía", "Ángel", "Elena", "Iñigo", "Nuria"};
+    private static final String[] SURNAMES = {"García", "Rodríguez", "González", "Fernández", "López", "Martínez",
+            "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz",
+            "Álvarez", "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Castro"};
+
+    private final PatientDuplicateDetector detector = new PatientDuplicateDetector(null, true, 100, PATIENTS);
+
+    @Test
+    void comparisonsGrowLinearlyWithPatients() {
+        Random random = new Random(7);
+        List<Row> rows = new ArrayList<>(PATIENTS + PLANTED);
+        for (long id = 1; id <= PATIENTS; id++) {
+            String name = pick(random, FIRST_NAMES) + " " + pick(random, SURNAMES) + " " + pick(random, SURNAMES);
+            rows.add(new Row(id, name, "6" + String.format("%08d", random.nextInt(100_000_000)),
+                    "p" + id + "@example.com", LocalDate.of(1940, 1, 1).plusDays(random.nextInt(30_000))));
+        }
+        // Copias sin acentos, con el teléfono en formato internacional y sin email
+        List<String> planted = new ArrayList<>(PLANTED);
+        for (int i = 0; i < PLANTED; i++) {
+            Row original = rows.get(i * (PATIENTS / PLANTED));
+            long id = PATIENTS + i + 1L;
+            rows.add(new Row(id, PatientSearchIndex.normalize(original.name()).toUpperCase(),
+                    "+34 " + original.phone(), null, original.birthDate()));
+            planted.add(original.id() + "-" + id);
+        }
+
+        PatientDuplicateReport report = detector.detect(rows);
+
+        assertThat(report.getComparisons()).isLessThan((long) rows.size() * MAX_COMPARISONS_PER_PATIENT);
+        assertThat(report.getCandidates())
+                .extracting(candidate -> candidate.getFirst().getId() + "-" + candidate.getSecond().getId())
+                .containsAll(planted);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private record Row(Long id, String name, String phone, String email, LocalDate birthDate)
+            implements PatientRepository.DuplicateEntry {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getPhone() {
+            return phone;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.PatientDuplicateReport;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Detección de duplicados: parejas que deben (y no deben) salir y reglas de bloque (solo se compara dentro de
+ * un bloque y los bloques demasiado grandes se descartan).
+ */
+class PatientDuplicateDetectorTest {
+
+    private final PatientDuplicateDetector detector = new PatientDuplicateDetector(null, true, 100, 1000);
+
+    @Test
+    void findsDuplicatesWrittenDifferently() {
+        List<Row> rows = List.of(
+                new Row(1L, "María García López", "+34 600 111 222", null, LocalDate.of(1980, 5, 1)),
+                new Row(2L, "Maria Garcia Lopez", "600111222", null, LocalDate.of(1980, 5, 1)),
+                new Row(3L, "José Martínez Ruiz", "611 222 333", "jose@example.com", null),
+                new Row(4L, "Jose Martinez", "699 000 111", " JOSE@example.com", null),
+                new Row(5L, "Carmen Sánchez Díaz", "622 333 444", null, LocalDate.of(1975, 1, 1)),
+                new Row(6L, "Díaz Sánchez, Carmen", "622 333 454", null, null),
+                // Familiares con el mismo teléfono: distinta fecha de nacimiento
+                new Row(7L, "Lucía Romero Gil", "633 444 555", null, LocalDate.of(1990, 2, 2)),
+                new Row(8L, "Javier Romero Gil", "633 444 555", null, LocalDate.of(1965, 3, 3)),
+                // Mismo nombre y nada más en común
+                new Row(9L, "Ana Torres Castro", "644 555 666", null, null),
+                new Row(10L, "Ana Torres Castro", "655 777 888", null, null));
+
+        PatientDuplicateReport report = detector.detect(rows);
+
+        assertThat(report.getCandidates())
+                .extracting(candidate -> candidate.getFirst().getId() + "-" + candidate.getSecond().getId())
+                .containsExactly("1-2", "3-4", "5-6");
+        assertThat(report.getCandidates().get(0).getMatchedOn())
+                .containsExactly(PatientDuplicateReport.Match.PHONE, PatientDuplicateReport.Match.BIRTH_DATE);
+        assertThat(report.getCandidates().get(2).getMatchedOn())
+                .containsExactly(PatientDuplicateReport.Match.SIMILAR_PHONE);
+    }
+
+    @Test
+    void comparesOnlyWithinBlocksAndSkipsOversizedOnes() {
+        PatientDuplicateDetector smallBlocks = new PatientDuplicateDetector(null, true, 3, 1000);
+        LocalDate shared = LocalDate.of(1980, 5, 1);
+        LocalDate crowded = LocalDate.of(1975, 1, 1);
+        // Nombres sin trigramas en común, para que solo agrupen el teléfono y la fecha de nacimiento
+        List<Row> rows = List.of(
+                // Mismo teléfono: 1 comparación
+                new Row(1L, "Lucía Romero", "600 111 222", null, null),
+                new Row(2L, "Javier Gil", "+34 600 111 222", null, null),
+                // Misma fecha, bloque del tamaño máximo: 3 comparaciones
+                new Row(3L, "Carmen Sánchez", "611 000 001", null, shared),
+                new Row(4L, "Pedro Duque", "622 000 002", null, shared),
+                new Row(5L, "Iñigo Zubizarreta", "633 000 003", null, shared),
+                // Misma fecha, bloque demasiado grande: se descarta sin comparar
+                new Row(6L, "Beatriz Olmo", "644 000 004", null, crowded),
+                new Row(7L, "Tomás Fuentes", "655 000 005", null, crowded),
+                new Row(8L, "Nuria Vidal", "666 000 006", null, crowded),
+                new Row(9L, "Hugo Barceló", "677 000 007", null, crowded));
+
+        PatientDuplicateReport report = smallBlocks.detect(rows);
+
+        assertThat(report.getComparisons()).isEqualTo(4);
+        assertThat(report.getSkippedBlocks()).isEqualTo(1);
+        assertThat(report.getCandidates()).isEmpty();
+    }
+
+    private record Row(Long id, String name, String phone, String email, LocalDate birthDate)
+            implements PatientRepository.DuplicateEntry {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getPhone() {
+            return phone;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+    }
+}
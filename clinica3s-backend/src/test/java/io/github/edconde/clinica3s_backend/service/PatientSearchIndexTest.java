@@ -0,0 +1,54 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.entity.Patient;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cambios de pacientes en el índice de búsqueda: tras una modificación (transaccional) el paciente ya no debe
+ * encontrarse por sus datos anteriores ni aparecer dos veces. Usa los pacientes que carga DataInitializer en
+ * development.
+ */
+@SpringBootTest
+class PatientSearchIndexTest {
+
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private PatientSearchIndex patientSearchIndex;
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Test
+    void updateReplacesPreviousEntry() {
+        Patient original = patientService.create(Patient.builder()
+                .name("Zacarías Indexado Antiguo")
+                .phone("600 987 654")
+                .email("zacarias.antiguo@example.com")
+                .build());
+        assertThat(patientSearchIndex.search("indexado antiguo", null, null, Sort.unsorted()))
+                .containsExactly(original.getId());
+
+        patientService.update(original.getId(), Patient.builder()
+                .name("Zacarías Indexado Nuevo")
+                .phone("611 987 654")
+                .email("zacarias.nuevo@example.com")
+                .build());
+
+        assertThat(patientSearchIndex.search("indexado antiguo", null, null, Sort.unsorted())).isEmpty();
+        assertThat(patientSearchIndex.search(null, "600987654", null, Sort.unsorted())).isEmpty();
+        assertThat(patientSearchIndex.search("zacarias indexado", null, null, Sort.unsorted()))
+                .containsExactly(original.getId());
+        assertThat(patientSearchIndex.count("zacarias indexado", null, null)).isEqualTo(1);
+
+        // Al borrarlo no queda ninguna entrada
+        patientService.delete(original.getId());
+        assertThat(patientSearchIndex.count("zacarias indexado", null, null)).isZero();
+        assertThat(patientRepository.existsById(original.getId())).isFalse();
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latencia (p99) y asignación por consulta del autocompletado de pacientes sobre 200.000 pacientes
+ * sintéticos, con prefijos de 1 a 5 letras, varias palabras y teléfonos. Depende de la máquina, así que
+ * se ejecuta solo con el perfil benchmark; el comportamiento se comprueba en {@link PatientSuggestIndexTest}.
+ */
+@Tag("benchmark")
+class PatientSuggestIndexBenchmarkTest {
+
+    private static final int PATIENTS = 200_000;
+    private static final int WARMUP_QUERIES = 20_000;
+    private static final int MEASURED_QUERIES = 20_000;
+    private static final int LIMIT = 10;
+    private static final long P99_TARGET_NANOS = 2_000_000;
+    private static final long MAX_BYTES_PER_QUERY = 16 * 1024;
+
+    private static final String[] FIRST_NAMES = {"María", "José", "Antonio", "Carmen", "Manuel", "Ana", "Francisco",
+            "Lucía", "David", "Laura", "Javier", "Marta", "Daniel", "Sofía", "Ángel", "Elena", "Iñigo", "Nuria"};
+    private static final String[] SURNAMES = {"García", "Rodríguez", "González", "Fernández", "López", "Martínez",
+            "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz",
+            "Álvarez", "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Castro"};
+
+    private static PatientSuggestIndex index;
+    private static String[] queries;
+
+    @BeforeAll
+    static void buildIndex() {
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>(PATIENTS);
+        for (long id = 1; id <= PATIENTS; id++) {
+            String name = pick(random, FIRST_NAMES) + " " + pick(random, SURNAMES) + " " + pick(random, SURNAMES);
+            String phone = "+34 6" + String.format("%08d", random.nextInt(100_000_000));
+            rows.add(new Row(id, name, phone));
+        }
+        index = new PatientSuggestIndex(null);
+        index.replace(rows);
+
+        queries = new String[1000];
+        for (int i = 0; i < queries.length; i++) {
+            String surname = pick(random, SURNAMES);
+            queries[i] = switch (i % 4) {
+                case 0 -> surname.substring(0, 1 + random.nextInt(Math.min(5, surname.length())));
+                case 1 -> pick(random, FIRST_NAMES) + " " + surname.substring(0, 3);
+                case 2 -> "6" + random.nextInt(10_000);
+                default -> pick(random, FIRST_NAMES).toLowerCase();
+            };
+        }
+    }
+
+    @Test
+    void p99LatencyAndAllocationPerQueryStayBounded() {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            index.suggest(queries[i % queries.length], LIMIT);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] latencies = new long[MEASURED_QUERIES];
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long start = System.nanoTime();
+            index.suggest(queries[i % queries.length], LIMIT);
+            latencies[i] = System.nanoTime() - start;
+        }
+        long bytesPerQuery = (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / MEASURED_QUERIES;
+
+        Arrays.sort(latencies);
+        long p99 = latencies[(int) (MEASURED_QUERIES * 0.99)];
+
+        assertThat(p99).isLessThan(P99_TARGET_NANOS);
+        assertThat(bytesPerQuery).isLessThan(MAX_BYTES_PER_QUERY);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private record Row(Long id, String name, String phone) implements PatientRepository.SearchEntry {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getPhone() {
+            return phone;
+        }
+
+        @Override
+        public String getEmail() {
+            return null;
+        }
+    }
+}
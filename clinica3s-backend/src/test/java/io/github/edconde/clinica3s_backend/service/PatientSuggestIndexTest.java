@@ -0,0 +1,69 @@
+package io.github.edconde.clinica3s_backend.service;
+
+import io.github.edconde.clinica3s_backend.dto.PatientSuggestion;
+import io.github.edconde.clinica3s_backend.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Autocompletado de pacientes sobre un conjunto pequeño y fijo: palabras del nombre sin acentos, varias
+ * palabras y teléfonos con o sin prefijo internacional.
+ */
+class PatientSuggestIndexTest {
+
+    private static final int LIMIT = 10;
+
+    private final PatientSuggestIndex index = new PatientSuggestIndex(null);
+
+    @Test
+    void findsByNameTokensAndPhoneDigits() {
+        index.replace(List.of(
+                new Row(1L, "Iñigo Álvarez Muñoz", "+34 600 000 001"),
+                new Row(2L, "Iñigo Alonso Ruiz", "+34 600 000 002"),
+                new Row(3L, "María Muñoz García", "+34 600 000 003"),
+                new Row(4L, "Ana Torres Muñoz", "+34 611 222 333"),
+                new Row(5L, "Ana Álvarez Díaz", "622 333 444"),
+                new Row(6L, "José Martín López", "+34 633 444 555")));
+
+        assertThat(index.suggest("munoz", LIMIT))
+                .extracting(PatientSuggestion::getId)
+                .containsExactlyInAnyOrder(1L, 3L, 4L);
+        assertThat(index.suggest("iñigo alv", LIMIT))
+                .extracting(PatientSuggestion::getId)
+                .containsExactly(1L);
+        assertThat(index.suggest("ana", LIMIT))
+                .extracting(PatientSuggestion::getId)
+                .containsExactlyInAnyOrder(4L, 5L);
+
+        assertThat(index.suggest("611222333", LIMIT)).extracting(PatientSuggestion::getId).containsExactly(4L);
+        assertThat(index.suggest("34611", LIMIT)).extracting(PatientSuggestion::getId).containsExactly(4L);
+        assertThat(index.suggest("622", LIMIT)).extracting(PatientSuggestion::getId).containsExactly(5L);
+        assertThat(index.suggest("6000000", LIMIT)).extracting(PatientSuggestion::getId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    private record Row(Long id, String name, String phone) implements PatientRepository.SearchEntry {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getPhone() {
+            return phone;
+        }
+
+        @Override
+        public String getEmail() {
+            return null;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import { useNavigate } from 'react-router-dom';
 import AppointmentDetailDialog from '../components/appointments/AppointmentDetailDialog';
 import { useAuth } from '../context/AuthContext';
 import {
+    getAppointmentById,
     getAppointments,
     payAppointment,
     updateAppointmentStatus
@@ -244,9 +245,21 @@ const AppointmentsPage = () => {
     });
   };
 
-  const openDetailDialog = (appointment) => {
-    setSelectedAppointment(appointment);
-    setDetailDialogVisible(true);
+  // El listado no incluye los detalles de cada cita: se cargan al abrir el diálogo
+  const openDetailDialog = async (appointment) => {
+    try {
+      const fullAppointment = await getAppointmentById(appointment.id);
+      setSelectedAppointment(fullAppointment);
+      setDetailDialogVisible(true);
+    } catch (err) {
+      console.error('Error al cargar la cita:', err);
+      toast.current?.show({
+        severity: 'error',
+        summary: 'Error',
+        detail: 'No se pudo cargar la cita',
+        life: 4000
+      });
+    }
   };
 
   // Templates de columnas
@@ -271,7 +284,7 @@ const AppointmentsPage = () => {
   };
 
   const amountTemplate = (rowData) => {
-    const hasPending = rowData.details?.some(d => !d.paid);
+    const hasPending = rowData.paid != null ? !rowData.paid : rowData.details?.some(d => !d.paid);
     return (
       <span className={hasPending ? 'text-orange-500 font-medium' : 'text-green-500 font-medium'}>
         {formatCurrency(rowData.totalAmount)}
@@ -286,7 +299,7 @@ const AppointmentsPage = () => {
   };
 
   const actionsTemplate = (rowData) => {
-    const hasPending = rowData.details?.some(d => !d.paid);
+    const hasPending = rowData.paid != null ? !rowData.paid : rowData.details?.some(d => !d.paid);
     return (
       <div className="flex gap-2">
         <Button
@@ -14,7 +14,7 @@ import { useEffect, useRef, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { createAppointment } from '../services/appointmentService';
 import { getDentists } from '../services/dentistService';
-import { getPatients } from '../services/patientService';
+import { searchPatients as suggestPatients } from '../services/patientService';
 import { getServices } from '../services/serviceService';
 import { formatCurrency } from '../utils/formatters';
 
@@ -26,7 +26,6 @@ const NewAppointmentPage = () => {
   const [selectedServices, setSelectedServices] = useState([]);
   
   // Datos maestros
-  const [patients, setPatients] = useState([]);
   const [filteredPatients, setFilteredPatients] = useState([]);
   const [dentists, setDentists] = useState([]);
   const [services, setServices] = useState([]);
@@ -50,13 +49,11 @@ const NewAppointmentPage = () => {
   const loadMasterData = async () => {
     try {
       setLoading(true);
-      const [patientsResponse, dentistsResponse, servicesResponse] = await Promise.all([
-        getPatients({ page: 0, size: 1000 }),
+      const [dentistsResponse, servicesResponse] = await Promise.all([
         getDentists({ page: 0, size: 100 }),
         getServices()
       ]);
       // Extraer content de respuestas paginadas
-      setPatients(patientsResponse.content || patientsResponse || []);
       setDentists(dentistsResponse.content || dentistsResponse || []);
       setServices(servicesResponse.content || servicesResponse || []);
     } catch (err) {
@@ -72,14 +69,14 @@ const NewAppointmentPage = () => {
     }
   };
 
-  // Búsqueda de pacientes para AutoComplete
-  const searchPatients = (event) => {
-    const query = event.query.toLowerCase();
-    const filtered = patients.filter(p => 
-      p.name?.toLowerCase().includes(query) ||
-      p.email?.toLowerCase().includes(query)
-    );
-    setFilteredPatients(filtered);
+  // Búsqueda de pacientes para AutoComplete (sugerencias del servidor por nombre o teléfono)
+  const searchPatients = async (event) => {
+    try {
+      setFilteredPatients(await suggestPatients(event.query));
+    } catch (err) {
+      console.error('Error al buscar pacientes:', err);
+      setFilteredPatients([]);
+    }
   };
 
   // Template para mostrar pacientes en AutoComplete
@@ -88,7 +85,7 @@ const NewAppointmentPage = () => {
       <div className="flex align-items-center">
         <div>
           <div className="font-medium">{item.name}</div>
-          <div className="text-500 text-sm">{item.email}</div>
+          <div className="text-500 text-sm">{item.phone}</div>
         </div>
       </div>
     );
@@ -306,7 +303,6 @@ const NewAppointmentPage = () => {
                   itemTemplate={patientTemplate}
                   onChange={(e) => setPatient(e.value)}
                   placeholder="Buscar paciente..."
-                  dropdown
                   className={`w-full ${errors.patient ? 'p-invalid' : ''}`}
                 />
                 {errors.patient && <small className="p-error">{errors.patient}</small>}
@@ -413,7 +409,7 @@ const NewAppointmentPage = () => {
               <div className="mb-4">
                 <h5 className="text-500 font-medium mb-2">Paciente</h5>
                 <p className="text-900 font-medium m-0">{patient.name}</p>
-                <p className="text-500 text-sm m-0">{patient.email}</p>
+                <p className="text-500 text-sm m-0">{patient.phone}</p>
               </div>
             )}
 
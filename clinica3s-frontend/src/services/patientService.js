@@ -23,19 +23,15 @@ export const getPatients = async ({ page = 0, size = 10, sort, name, phone, emai
 };
 
 /**
- * Buscar pacientes por nombre (para autocomplete)
+ * Buscar pacientes por el inicio de una palabra del nombre o del teléfono (para autocomplete)
  * @param {string} query - Texto de búsqueda
- * @returns {Promise<Array>} Lista de pacientes que coinciden
+ * @param {number} [limit=10] - Número máximo de sugerencias
+ * @returns {Promise<Array>} Lista de { id, name, phone }
  */
-export const searchPatients = async (query) => {
-  const response = await api.get('/api/patients', { 
-    params: { page: 0, size: 20, sort: 'name,asc' } 
-  });
-  // Filtrar en cliente por ahora (si el backend no tiene endpoint de búsqueda)
-  const patients = response.data.content || response.data;
-  if (!query) return patients;
-  const lowerQuery = query.toLowerCase();
-  return patients.filter(p => p.name.toLowerCase().includes(lowerQuery));
+export const searchPatients = async (query, limit = 10) => {
+  if (!query || !query.trim()) return [];
+  const response = await api.get('/api/patients/suggest', { params: { q: query, limit } });
+  return response.data;
 };
 
 /**